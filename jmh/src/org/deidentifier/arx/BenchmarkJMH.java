@@ -0,0 +1,161 @@
+/*
+ * Source code of our CBMS 2014 paper "A benchmark of globally-optimal
+ *      methods for the de-identification of biomedical data"
+ *
+ * Copyright (C) 2014 Florian Kohlmayer, Fabian Prasser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.deidentifier.arx;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.deidentifier.arx.BenchmarkSetup.BenchmarkAlgorithm;
+import org.deidentifier.arx.BenchmarkSetup.BenchmarkCriterion;
+import org.deidentifier.arx.BenchmarkSetup.BenchmarkDataset;
+import org.deidentifier.arx.algorithm.AbstractBenchmarkAlgorithm;
+import org.deidentifier.arx.framework.lattice.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH harness around the benchmark driver. Only traverse() is measured, all
+ * other work (loading and encoding data, building the lattice and the checker)
+ * is performed in the state's setup. Run with:<br>
+ * java -jar jars/anonbench-0.2-jmh.jar [JMH options, e.g. -p algorithm=FLASH -prof gc]
+ *
+ * @author Fabian Prasser
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class BenchmarkJMH {
+
+    /**
+     * Parameters of the benchmark. The matrix is the same as in {@link BenchmarkMain}.
+     */
+    @State(Scope.Benchmark)
+    public static class Parameters {
+
+        /** The algorithm */
+        @Param({ "FLASH", "OLA", "INCOGNITO", "DFS", "BFS" })
+        public String               algorithm;
+
+        /** The dataset */
+        @Param({ "ADULT", "CUP", "FARS", "ATUS", "IHIS" })
+        public String               dataset;
+
+        /** The criteria, see {@link BenchmarkSetup#getCriteria()} */
+        @Param({ "K_ANONYMITY",
+                 "L_DIVERSITY",
+                 "T_CLOSENESS",
+                 "D_PRESENCE",
+                 "K_ANONYMITY,L_DIVERSITY",
+                 "K_ANONYMITY,T_CLOSENESS",
+                 "K_ANONYMITY,D_PRESENCE",
+                 "D_PRESENCE,L_DIVERSITY",
+                 "D_PRESENCE,T_CLOSENESS",
+                 "K_ANONYMITY,D_PRESENCE,L_DIVERSITY",
+                 "K_ANONYMITY,D_PRESENCE,T_CLOSENESS" })
+        public String               criteria;
+
+        /** Parsed algorithm */
+        BenchmarkAlgorithm          _algorithm;
+        /** Parsed dataset */
+        BenchmarkDataset            _dataset;
+        /** Parsed criteria */
+        BenchmarkCriterion[]        _criteria;
+        /** The driver */
+        final BenchmarkDriver       driver = new BenchmarkDriver();
+
+        /**
+         * Parses the parameters
+         */
+        @Setup(Level.Trial)
+        public void setup() {
+            _algorithm = BenchmarkAlgorithm.valueOf(algorithm);
+            _dataset = BenchmarkDataset.valueOf(dataset);
+            String[] names = criteria.split(",");
+            _criteria = new BenchmarkCriterion[names.length];
+            for (int i = 0; i < names.length; i++) {
+                _criteria[i] = BenchmarkCriterion.valueOf(names[i]);
+            }
+            for (BenchmarkCriterion[] candidate : BenchmarkSetup.getCriteria()) {
+                if (Arrays.equals(candidate, _criteria)) {
+                    return;
+                }
+            }
+            throw new IllegalArgumentException("Unknown combination of criteria: " + criteria);
+        }
+    }
+
+    /**
+     * The algorithm instance. Traversal modifies the lattice, so a fresh
+     * instance is built before each invocation.
+     */
+    @State(Scope.Thread)
+    public static class Implementation {
+
+        /** The implementation */
+        AbstractBenchmarkAlgorithm implementation;
+
+        /**
+         * Builds the implementation
+         * @param parameters
+         * @throws IOException
+         */
+        @Setup(Level.Invocation)
+        public void setup(Parameters parameters) throws IOException {
+            implementation = parameters.driver.getImplementation(parameters._dataset,
+                                                                 parameters._criteria,
+                                                                 parameters._algorithm);
+        }
+
+        /**
+         * Releases the implementation
+         */
+        @TearDown(Level.Invocation)
+        public void tearDown() {
+            implementation = null;
+        }
+    }
+
+    /**
+     * Traverses the search space
+     *
+     * @param implementation
+     * @return
+     */
+    @Benchmark
+    public Node traverse(Implementation implementation) {
+        implementation.implementation.traverse();
+        return implementation.implementation.getGlobalOptimum();
+    }
+}
@@ -5,5 +5,9 @@ for f in `ls /sys/devices/system/cpu/ | grep cpu[0-9]`; do
 test -e /sys/devices/system/cpu/$f/cpufreq/scaling_governor && echo performance | sudo tee /sys/devices/system/cpu/$f/cpufreq/scaling_governor
 done
 
+#select garbage collector, e.g. GC="-XX:+UseParallelGC" or GC="-XX:+UseZGC"
+#GC="-XX:+UseConcMarkSweepGC" reproduces the original setup, but requires a JVM older than JDK 14
+GC=${GC:-"-XX:+UseG1GC"}
+
 #run benchmark
-java -Xmx4G -XX:+UseConcMarkSweepGC -jar jars/anonbench-0.2.jar
\ No newline at end of file
+java -Xmx4G $GC -jar jars/anonbench-0.2.jar "$@"
\ No newline at end of file
@@ -0,0 +1,281 @@
+/*
+ * Source code of our CBMS 2014 paper "A benchmark of globally-optimal
+ *      methods for the de-identification of biomedical data"
+ *
+ * Copyright (C) 2014 Florian Kohlmayer, Fabian Prasser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.deidentifier.arx;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+
+import org.deidentifier.arx.BenchmarkSetup.BenchmarkAlgorithm;
+import org.deidentifier.arx.algorithm.AbstractBenchmarkAlgorithm;
+import org.deidentifier.arx.algorithm.AlgorithmBFS;
+import org.deidentifier.arx.algorithm.AlgorithmDFS;
+import org.deidentifier.arx.algorithm.AlgorithmFlash;
+import org.deidentifier.arx.algorithm.AlgorithmIncognito;
+import org.deidentifier.arx.algorithm.AlgorithmOLA;
+import org.deidentifier.arx.algorithm.AlgorithmParallelBFS;
+import org.deidentifier.arx.algorithm.AlgorithmParallelFlash;
+import org.deidentifier.arx.algorithm.AlgorithmParallelOLA;
+import org.deidentifier.arx.framework.check.INodeChecker;
+import org.deidentifier.arx.framework.check.NodeChecker;
+import org.deidentifier.arx.framework.data.DataManager;
+import org.deidentifier.arx.framework.lattice.Lattice;
+import org.deidentifier.arx.metric.Metric;
+import org.deidentifier.arx.metric.TimedMetric;
+
+/**
+ * Creates instances of algorithms by name. Names are either the names of the
+ * built-in {@link BenchmarkAlgorithm}s (case-insensitive), or fully qualified names
+ * of classes extending {@link AbstractBenchmarkAlgorithm}. Such classes must provide
+ * a public constructor accepting a {@link Lattice} and an {@link INodeChecker}.
+ *
+ * @author Fabian Prasser
+ */
+public class BenchmarkAlgorithmFactory {
+
+    /** The name */
+    private final String                                            name;
+    /** The built-in algorithm, null for other classes */
+    private final BenchmarkAlgorithm                                algorithm;
+    /** The constructor of other classes, null for built-in algorithms */
+    private final Constructor<? extends AbstractBenchmarkAlgorithm> constructor;
+
+    /**
+     * Creates a new instance
+     *
+     * @param name
+     * @param algorithm
+     * @param constructor
+     */
+    private BenchmarkAlgorithmFactory(String name,
+                                      BenchmarkAlgorithm algorithm,
+                                      Constructor<? extends AbstractBenchmarkAlgorithm> constructor) {
+        this.name = name;
+        this.algorithm = algorithm;
+        this.constructor = constructor;
+    }
+
+    /**
+     * Returns a factory for the algorithm with the given name
+     *
+     * @param name
+     * @return
+     */
+    public static BenchmarkAlgorithmFactory forName(String name) {
+
+        // Built-in
+        for (BenchmarkAlgorithm algorithm : BenchmarkAlgorithm.values()) {
+            if (algorithm.name().equalsIgnoreCase(name)) {
+                return new BenchmarkAlgorithmFactory(algorithm.name(), algorithm, null);
+            }
+        }
+
+        // Load class
+        Class<?> clazz;
+        try {
+            clazz = Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Invalid algorithm: " + name, e);
+        }
+        if (!AbstractBenchmarkAlgorithm.class.isAssignableFrom(clazz)) {
+            throw new IllegalArgumentException("Algorithm does not extend AbstractBenchmarkAlgorithm: " + name);
+        }
+        try {
+            return new BenchmarkAlgorithmFactory(name, null, clazz.asSubclass(AbstractBenchmarkAlgorithm.class)
+                                                                  .getConstructor(Lattice.class, INodeChecker.class));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("Algorithm does not provide a constructor (Lattice, INodeChecker): " + name, e);
+        }
+    }
+
+    /**
+     * Creates a ready-to-run instance of the algorithm
+     *
+     * @param lattice
+     * @param checker The checker, null if not required, see {@link #isCheckerRequired()}
+     * @param manager
+     * @param config
+     * @param historySize
+     * @param snapshotSizeDataset
+     * @param snapshotSizeSnapshot
+     * @param threads The number of threads of parallel algorithms, see {@link #isParallel()}
+     * @return
+     */
+    public AbstractBenchmarkAlgorithm create(Lattice lattice,
+                                             INodeChecker checker,
+                                             DataManager manager,
+                                             ARXConfiguration config,
+                                             int historySize,
+                                             double snapshotSizeDataset,
+                                             double snapshotSizeSnapshot,
+                                             int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+
+        // Other classes
+        if (algorithm == null) {
+            try {
+                return constructor.newInstance(lattice, checker);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeException("Cannot create algorithm: " + name, e.getCause());
+            } catch (InstantiationException e) {
+                throw new RuntimeException("Cannot create algorithm: " + name, e);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("Cannot create algorithm: " + name, e);
+            }
+        }
+
+        // Built-in
+        switch (algorithm) {
+        case BFS:
+            return new AlgorithmBFS(lattice, checker);
+        case DFS:
+            return new AlgorithmDFS(lattice, checker);
+        case FLASH:
+            return new AlgorithmFlash(lattice, checker, manager.getHierarchies());
+        case INCOGNITO:
+            return new AlgorithmIncognito(lattice, manager,
+                                                   config.getMetric(),
+                                                   config.getInternalConfiguration(),
+                                                   historySize,
+                                                   snapshotSizeDataset,
+                                                   snapshotSizeSnapshot);
+        case OLA:
+            return new AlgorithmOLA(lattice, checker);
+        case PARALLEL_BFS:
+            return new AlgorithmParallelBFS(lattice, getCheckers(checker,
+                                                                 manager,
+                                                                 config,
+                                                                 historySize,
+                                                                 snapshotSizeDataset,
+                                                                 snapshotSizeSnapshot,
+                                                                 threads));
+        case PARALLEL_FLASH:
+            return new AlgorithmParallelFlash(lattice,
+                                              getCheckers(checker,
+                                                          manager,
+                                                          config,
+                                                          historySize,
+                                                          snapshotSizeDataset,
+                                                          snapshotSizeSnapshot,
+                                                          threads),
+                                              manager.getHierarchies());
+        case PARALLEL_OLA:
+            return new AlgorithmParallelOLA(lattice, getCheckers(checker,
+                                                                 manager,
+                                                                 config,
+                                                                 historySize,
+                                                                 snapshotSizeDataset,
+                                                                 snapshotSizeSnapshot,
+                                                                 threads));
+        case PARALLEL_INCOGNITO:
+            return new AlgorithmIncognito(lattice, manager,
+                                                   config.getMetric(),
+                                                   config.getInternalConfiguration(),
+                                                   historySize,
+                                                   snapshotSizeDataset,
+                                                   snapshotSizeSnapshot,
+                                                   threads);
+        default:
+            throw new RuntimeException("Invalid algorithm");
+        }
+    }
+
+    /**
+     * Returns one checker per thread for parallel algorithms. The first
+     * one is the given checker, the others are created with the same settings. All
+     * checkers share the (read-only) data of the given DataManager. Each checker uses
+     * its own copy of the initialized metric, if it is a {@link TimedMetric}, which is
+     * the case for all runs of the {@link BenchmarkDriver}. Otherwise the metric is
+     * shared and must be thread-safe.
+     *
+     * @param checker
+     * @param manager
+     * @param config
+     * @param historySize
+     * @param snapshotSizeDataset
+     * @param snapshotSizeSnapshot
+     * @param threads
+     * @return
+     */
+    private INodeChecker[] getCheckers(INodeChecker checker,
+                                       DataManager manager,
+                                       ARXConfiguration config,
+                                       int historySize,
+                                       double snapshotSizeDataset,
+                                       double snapshotSizeSnapshot,
+                                       int threads) {
+        INodeChecker[] checkers = new INodeChecker[threads];
+        checkers[0] = checker;
+        Metric<?> metric = config.getMetric();
+        for (int i = 1; i < checkers.length; i++) {
+            checkers[i] = new NodeChecker(manager,
+                                          metric instanceof TimedMetric ? ((TimedMetric<?>) metric).copy() : metric,
+                                          config.getInternalConfiguration(),
+                                          historySize,
+                                          snapshotSizeDataset,
+                                          snapshotSizeSnapshot);
+        }
+        return checkers;
+    }
+
+    /**
+     * Returns the label used in results, i.e. the label of built-in algorithms
+     * or the simple name of other classes
+     *
+     * @return
+     */
+    public String getLabel() {
+        return algorithm != null ? algorithm.toString() : constructor.getDeclaringClass().getSimpleName();
+    }
+
+    /**
+     * Returns the name, which can be passed to {@link #forName(String)}
+     *
+     * @return
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns whether the algorithm uses more than one thread, see {@link #create(Lattice, INodeChecker, DataManager,
+     * ARXConfiguration, int, double, double, int)}
+     *
+     * @return
+     */
+    public boolean isParallel() {
+        return algorithm == BenchmarkAlgorithm.PARALLEL_BFS || algorithm == BenchmarkAlgorithm.PARALLEL_FLASH ||
+               algorithm == BenchmarkAlgorithm.PARALLEL_OLA || algorithm == BenchmarkAlgorithm.PARALLEL_INCOGNITO;
+    }
+
+    /**
+     * Returns whether the algorithm requires a node checker. Incognito builds its own.
+     *
+     * @return
+     */
+    public boolean isCheckerRequired() {
+        return algorithm != BenchmarkAlgorithm.INCOGNITO && algorithm != BenchmarkAlgorithm.PARALLEL_INCOGNITO;
+    }
+}
@@ -27,10 +27,13 @@ import java.text.NumberFormat;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.deidentifier.arx.BenchmarkSetup.BenchmarkAlgorithm;
 import org.deidentifier.arx.BenchmarkSetup.BenchmarkCriterion;
+import org.deidentifier.arx.BenchmarkSetup.BenchmarkDataset;
 
 import de.linearbits.objectselector.Selector;
 import de.linearbits.subframe.analyzer.Analyzer;
@@ -40,6 +43,7 @@ import de.linearbits.subframe.graph.Function;
 import de.linearbits.subframe.graph.Labels;
 import de.linearbits.subframe.graph.Plot;
 import de.linearbits.subframe.graph.PlotHistogramClustered;
+import de.linearbits.subframe.graph.PlotLinesClustered;
 import de.linearbits.subframe.graph.Point2D;
 import de.linearbits.subframe.graph.Point3D;
 import de.linearbits.subframe.graph.Series2D;
@@ -53,7 +57,11 @@ import de.linearbits.subframe.render.PlotGroup;
 public class BenchmarkAnalysis {
     
     /** The variables */
-    private static final String[] VARIABLES = {"Number of checks", "Number of rollups", "Execution time"};
+    private static final String[] VARIABLES = {"Number of checks", "Number of rollups", "Execution time",
+                                               "Allocated bytes", "Peak heap", "Retained heap"};
+
+    /** The variables measured in bytes */
+    private static final String[] MEMORY_VARIABLES = {"Allocated bytes", "Peak heap", "Retained heap"};
 
     /**
      * Main
@@ -65,6 +73,126 @@ public class BenchmarkAnalysis {
 
         generateTables();
         generatePlots();
+        if (new File("results/results_rows.csv").exists()) {
+            generateSweepPlots("results/results_rows.csv", "Rows", "Number of rows relative to the dataset",
+                               new String[] { "Execution time", "Number of checks", "Number of rollups", "Peak heap" },
+                               null, true);
+        }
+        if (new File("results/results_qis.csv").exists()) {
+            generateSweepPlots("results/results_qis.csv", "QIs", "Number of quasi-identifiers",
+                               new String[] { "Execution time", "Number of checks", "Number of rollups", "Lattice size" },
+                               null, false);
+        }
+        if (new File("results/results_parameters.csv").exists()) {
+            BenchmarkCriterion[][] criteria = new BenchmarkCriterion[BenchmarkCriterion.values().length][];
+            for (int i = 0; i < criteria.length; i++) {
+                criteria[i] = new BenchmarkCriterion[] { BenchmarkCriterion.values()[i] };
+            }
+            generateSweepPlots("results/results_parameters.csv", "Parameters", "Parameter",
+                               new String[] { "Execution time", "Number of checks" },
+                               criteria, false);
+        }
+        if (new File("results/results_suppression.csv").exists()) {
+            generateSweepPlots("results/results_suppression.csv", "Suppression", "Suppression limit",
+                               new String[] { "Execution time", "Number of checks" },
+                               BenchmarkSetup.getCriteria(), false);
+        }
+        if (new File("results/results_metrics.csv").exists()) {
+            generateSweepPlots("results/results_metrics.csv", "Metric", "Metric",
+                               new String[] { "Execution time", "Check time", "Metric evaluation time" },
+                               null, false);
+        }
+    }
+
+    /**
+     * Generate plots of the given measures as a function of the variable of a sweep, with one plot
+     * per dataset and one group of plots per measure and combination of criteria. Numeric variables
+     * are plotted as lines, all others as clustered histograms.
+     * @param file The results of the sweep, the plots are written to a file with the same name
+     * @param variable The variable of the sweep, i.e. the column on the x-axis
+     * @param label The label of the x-axis
+     * @param measures
+     * @param criteria The combinations of criteria to plot separately, null to plot all cells together
+     * @param logX
+     * @throws IOException
+     * @throws ParseException
+     */
+    private static void generateSweepPlots(String file,
+                                           String variable,
+                                           String label,
+                                           String[] measures,
+                                           BenchmarkCriterion[][] criteria,
+                                           boolean logX) throws IOException, ParseException {
+
+        CSVFile csv = new CSVFile(new File(file));
+        List<BenchmarkDataset> datasets = new ArrayList<BenchmarkDataset>();
+        datasets.addAll(Arrays.asList(BenchmarkSetup.getDatasets()));
+        datasets.addAll(Arrays.asList(BenchmarkSetup.getSyntheticDatasets()));
+
+        List<PlotGroup> groups = new ArrayList<PlotGroup>();
+        for (BenchmarkCriterion[] selection : criteria != null ? criteria : new BenchmarkCriterion[][] { null }) {
+            for (String measure : measures) {
+
+                // For each dataset
+                List<Plot<?>> plots = new ArrayList<Plot<?>>();
+                for (BenchmarkDataset dataset : datasets) {
+
+                    // Select data for the given dataset and criteria
+                    Selector<String[]> selector = selection == null ? csv.getSelectorBuilder()
+                                                                         .field("Dataset").equals(dataset.toString())
+                                                                         .build()
+                                                                    : csv.getSelectorBuilder()
+                                                                         .field("Dataset").equals(dataset.toString()).and()
+                                                                         .field("Criteria").equals(Arrays.toString(selection))
+                                                                         .build();
+
+                    // Create series
+                    Series3D series = new Series3D(csv, selector,
+                                                   new Field(variable),
+                                                   new Field("Algorithm"),
+                                                   new Field(measure, Analyzer.ARITHMETIC_MEAN));
+                    if (!series.getData().isEmpty()) {
+                        if (isNumeric(series)) {
+                            plots.add(new PlotLinesClustered(dataset.toString(),
+                                                             new Labels(label, measure),
+                                                             series));
+                        } else {
+                            plots.add(new PlotHistogramClustered(dataset.toString(),
+                                                                 new Labels(label, measure),
+                                                                 series));
+                        }
+                    }
+                }
+
+                // Define params
+                GnuPlotParams params = new GnuPlotParams();
+                params.rotateXTicks = 0;
+                params.logX = logX;
+                params.logY = true;
+                params.size = 1.0;
+                params.keypos = KeyPos.TOP_LEFT;
+                String caption = measure + " as a function of " + label.substring(0, 1).toLowerCase() + label.substring(1);
+                caption = selection == null ? caption : caption + " for " + Arrays.toString(selection);
+                groups.add(new PlotGroup(caption, plots, params, 0.5d));
+            }
+        }
+        LaTeX.plot(groups, file.substring(0, file.lastIndexOf('.')));
+    }
+
+    /**
+     * Returns whether all values on the x-axis of the series are numeric
+     * @param series
+     * @return
+     */
+    private static boolean isNumeric(Series3D series) {
+        for (Point3D point : series.getData()) {
+            try {
+                Double.parseDouble(point.x);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -185,6 +313,84 @@ public class BenchmarkAnalysis {
         csv.write(new File("results/table_"+variable.toLowerCase().replaceAll(" ", "_")+".csv"));
     }
 
+    /**
+     * Generates a table containing the geometric mean of the ratio between two variables
+     * over all combinations of criteria, e.g. CPU time per wall-clock time. For process CPU
+     * time, this is the number of cores utilized on average.
+     * @param file
+     * @param numerator
+     * @param denominator
+     * @throws ParseException
+     * @throws IOException
+     */
+    private static void generateRatioTable(CSVFile file, String numerator, String denominator) throws ParseException, IOException {
+
+        // Create csv header
+        String[] header1 = new String[BenchmarkSetup.getDatasets().length + 1];
+        Arrays.fill(header1, "");
+        header1[0] = numerator + " / " + denominator;
+        String[] header2 = new String[header1.length];
+        header2[0] = "";
+        for (int i=1; i<header2.length; i++) {
+            header2[i] = BenchmarkSetup.getDatasets()[i-1].toString();
+        }
+
+        // Create csv
+        CSVFile csv = new CSVFile(header1, header2);
+        final NumberFormat df = new DecimalFormat("0.00");
+
+        // For each algorithm
+        for (BenchmarkAlgorithm algorithm : BenchmarkSetup.getAlgorithms()) {
+
+            // The current line
+            String[] line = new String[header1.length];
+            line[0] = algorithm.toString();
+
+            // For each dataset
+            for (int i=1; i<header1.length; i++) {
+
+                // Select data for the given data point
+                String dataset = BenchmarkSetup.getDatasets()[i-1].toString();
+                Selector<String[]> selector = file.getSelectorBuilder()
+                                                  .field("Algorithm").equals(algorithm.toString()).and()
+                                                  .field("Dataset").equals(dataset)
+                                                  .build();
+
+                // Create series
+                Series2D numerators = new Series2D(file, selector,
+                                                   new Field("Criteria"),
+                                                   new Field(numerator, Analyzer.ARITHMETIC_MEAN));
+                Series2D denominators = new Series2D(file, selector,
+                                                     new Field("Criteria"),
+                                                     new Field(denominator, Analyzer.ARITHMETIC_MEAN));
+
+                // Compute geometric mean of ratios
+                Map<String, Double> values = new HashMap<String, Double>();
+                for (Point2D point : denominators.getData()) {
+                    values.put(point.x, Double.valueOf(point.y));
+                }
+                double logs = 0d;
+                int count = 0;
+                for (Point2D point : numerators.getData()) {
+                    Double value = values.get(point.x);
+                    if (value != null && value > 0d && Double.valueOf(point.y) > 0d) {
+                        logs += Math.log(Double.valueOf(point.y) / value);
+                        count++;
+                    }
+                }
+
+                // Render and store
+                line[i] = count == 0 ? "-" : df.format(Math.exp(logs / count));
+            }
+
+            // Add line
+            csv.addLine(line);
+        }
+
+        // Write to file
+        csv.write(new File("results/table_ratio_"+numerator.toLowerCase().replaceAll(" ", "_")+".csv"));
+    }
+
     /**
      * Generate the tables
      * @throws IOException 
@@ -198,6 +404,12 @@ public class BenchmarkAnalysis {
         generateTable(file, VARIABLES[0], true);
         generateTable(file, VARIABLES[1], false);
         generateTable(file, VARIABLES[2], true);
+        for (String variable : MEMORY_VARIABLES) {
+            generateTable(file, variable, true);
+        }
+        generateRatioTable(file, "Thread CPU time", "Execution time");
+        generateRatioTable(file, "Process CPU time", "Execution time");
+        generateRatioTable(file, "Metric evaluation time", "Check time");
     }
 
     /**
@@ -239,6 +451,16 @@ public class BenchmarkAnalysis {
             });
         }
 
+        // Transform bytes to megabytes
+        if (Arrays.asList(MEMORY_VARIABLES).contains(variable)) {
+            series.transform(new Function<Point3D>(){
+                @Override
+                public Point3D apply(Point3D t) {
+                    return new Point3D(t.x, t.y, String.valueOf(Double.valueOf(t.z)/1048576d));
+                }
+            });
+        }
+
         // Create plot
         plots.add(new PlotHistogramClustered("",
                                              new Labels(focus, "Geom. mean of " + variable.toLowerCase()),
@@ -265,6 +487,10 @@ public class BenchmarkAnalysis {
             params.minY = 1d;
             params.maxY = getMax(series, 1);
             params.printValuesFormatString= "%.0f";
+        } else if (Arrays.asList(MEMORY_VARIABLES).contains(variable)) {
+            params.minY = 0.1d;
+            params.maxY = getMax(series, 1);
+            params.printValuesFormatString= "%.0f";
         }
         if (focus.equals("Criteria")) {
             params.keypos = KeyPos.AT(5, params.maxY * 1.1d, "horiz bot center");
@@ -0,0 +1,466 @@
+/*
+ * Source code of our CBMS 2014 paper "A benchmark of globally-optimal
+ *      methods for the de-identification of biomedical data"
+ *
+ * Copyright (C) 2014 Florian Kohlmayer, Fabian Prasser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.deidentifier.arx;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.deidentifier.arx.BenchmarkSetup.BenchmarkDataset;
+
+/**
+ * A persistent binary cache of encoded datasets, hierarchies and research subsets.
+ * Entries are keyed by the dataset, its attribute definition and a hash of the
+ * content of all source files. They are read via memory-mapped I/O, so repeated
+ * runs do not need to parse any CSV files. Inputs that have been read are kept in
+ * memory per dataset and scale, so that each file is read at most once per JVM.
+ *
+ * @author Fabian Prasser
+ */
+public class BenchmarkCache {
+
+    /**
+     * Reads a file through a sliding memory-mapped window
+     */
+    private static class MappedReader {
+
+        /** Size of the window */
+        private static final long WINDOW = 1L << 28;
+
+        /** The channel */
+        private final FileChannel channel;
+        /** The size of the file */
+        private final long        size;
+        /** The offset of the current window */
+        private long              offset;
+        /** The current window */
+        private MappedByteBuffer  buffer;
+
+        /**
+         * Creates a new instance
+         * @param channel
+         * @throws IOException
+         */
+        MappedReader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.map(0);
+        }
+
+        /**
+         * Reads an int
+         * @return
+         * @throws IOException
+         */
+        int readInt() throws IOException {
+            ensure(4);
+            return buffer.getInt();
+        }
+
+        /**
+         * Reads an array of ints
+         * @param target
+         * @throws IOException
+         */
+        void readInts(int[] target) throws IOException {
+            int bytes = target.length * 4;
+            ensure(bytes);
+            buffer.asIntBuffer().get(target);
+            buffer.position(buffer.position() + bytes);
+        }
+
+        /**
+         * Reads a string
+         * @return
+         * @throws IOException
+         */
+        String readString() throws IOException {
+            int length = readInt();
+            if (length == -1) {
+                return null;
+            }
+            ensure(length);
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, UTF8);
+        }
+
+        /**
+         * Makes sure that the given number of bytes can be read from the current window
+         * @param bytes
+         * @throws IOException
+         */
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                long position = offset + buffer.position();
+                if (position + bytes > size) {
+                    throw new EOFException("Unexpected end of cache file");
+                }
+                map(position);
+            }
+        }
+
+        /**
+         * Maps a window starting at the given position
+         * @param position
+         * @throws IOException
+         */
+        private void map(long position) throws IOException {
+            offset = position;
+            buffer = channel.map(MapMode.READ_ONLY, position, Math.min(WINDOW, size - position));
+        }
+    }
+
+    /** Magic number */
+    private static final int                     MAGIC   = 0x414E4243;
+    /** Version of the file format */
+    private static final int                     VERSION = 2;
+    /** Charset */
+    private static final Charset                 UTF8    = Charset.forName("UTF-8");
+
+    /** The directory */
+    private final File                           directory;
+    /** The keys of all datasets, computed once per JVM */
+    private final Map<BenchmarkDataset, String>  keys    = new ConcurrentHashMap<BenchmarkDataset, String>();
+    /** The inputs that have been read, per dataset and scale */
+    private final Map<String, BenchmarkInput>    inputs  = new ConcurrentHashMap<String, BenchmarkInput>();
+
+    /**
+     * Creates a new cache in the given directory
+     *
+     * @param directory
+     */
+    public BenchmarkCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the encoded input for the given dataset. Loads the input from the cache if
+     * it is up-to-date, or from the source files, which are then stored in the cache.
+     * Inputs are kept in memory.
+     *
+     * @param dataset
+     * @return
+     * @throws IOException
+     */
+    public BenchmarkInput get(BenchmarkDataset dataset) throws IOException {
+        return get(dataset, 1d);
+    }
+
+    /**
+     * Returns the encoded input for the given dataset, scaled by the given factor, see
+     * {@link BenchmarkInput#scale(double)}. Inputs are kept in memory.
+     *
+     * @param dataset
+     * @param factor
+     * @return
+     * @throws IOException
+     */
+    public BenchmarkInput get(BenchmarkDataset dataset, double factor) throws IOException {
+
+        String name = dataset.name() + "/" + factor;
+        BenchmarkInput input = inputs.get(name);
+        if (input == null) {
+            input = factor == 1d ? load(dataset) : get(dataset, 1d).scale(factor);
+            inputs.put(name, input);
+        }
+        return input;
+    }
+
+    /**
+     * Returns the key for the given dataset
+     *
+     * @param dataset
+     * @return
+     * @throws IOException
+     */
+    private String getKey(BenchmarkDataset dataset) throws IOException {
+
+        String key = keys.get(dataset);
+        if (key != null) {
+            return key;
+        }
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+
+        // Synthetic datasets
+        BenchmarkSetup.generate(dataset);
+
+        // Definition
+        digest.update(dataset.name().getBytes(UTF8));
+        for (String attribute : BenchmarkInput.getAttributes(dataset)) {
+            digest.update(attribute.getBytes(UTF8));
+        }
+
+        // Content
+        update(digest, new File(BenchmarkSetup.getDataFile(dataset)));
+        update(digest, new File(BenchmarkSetup.getSubsetFile(dataset)));
+        for (String attribute : BenchmarkInput.getAttributes(dataset)) {
+            update(digest, new File(BenchmarkSetup.getHierarchyFile(dataset, attribute)));
+        }
+
+        // Render
+        StringBuilder builder = new StringBuilder();
+        for (byte b : digest.digest()) {
+            builder.append(String.format("%02x", b));
+        }
+        key = builder.toString();
+        keys.put(dataset, key);
+        return key;
+    }
+
+    /**
+     * Loads the input from the cache if it is up-to-date, or from the source files,
+     * which are then stored in the cache
+     *
+     * @param dataset
+     * @return
+     * @throws IOException
+     */
+    private BenchmarkInput load(BenchmarkDataset dataset) throws IOException {
+
+        String key = getKey(dataset);
+        File file = new File(directory, dataset.name().toLowerCase() + ".bin");
+
+        // Try to read
+        if (file.exists()) {
+            BenchmarkInput input = read(file, dataset, key);
+            if (input != null) {
+                return input;
+            }
+        }
+
+        // Encode and write
+        BenchmarkInput input = BenchmarkInput.create(dataset);
+        write(file, key, input);
+        return input;
+    }
+
+    /**
+     * Reads an entry, returns null if it is outdated
+     *
+     * @param file
+     * @param dataset
+     * @param key
+     * @return
+     * @throws IOException
+     */
+    private BenchmarkInput read(File file, BenchmarkDataset dataset, String key) throws IOException {
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            MappedReader reader = new MappedReader(raf.getChannel());
+
+            // Check
+            if (reader.readInt() != MAGIC || reader.readInt() != VERSION || !key.equals(reader.readString())) {
+                return null;
+            }
+
+            // Header
+            String[] header = new String[reader.readInt()];
+            for (int i = 0; i < header.length; i++) {
+                header[i] = reader.readString();
+            }
+
+            // Data
+            int[][] data = new int[reader.readInt()][header.length];
+            for (int i = 0; i < data.length; i++) {
+                reader.readInts(data[i]);
+            }
+
+            // Dictionary
+            String[][] dictionary = new String[header.length][];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = new String[reader.readInt()];
+                for (int j = 0; j < dictionary[i].length; j++) {
+                    dictionary[i][j] = reader.readString();
+                }
+            }
+
+            // Hierarchies
+            Map<String, String[][]> hierarchies = new HashMap<String, String[][]>();
+            int count = reader.readInt();
+            for (int i = 0; i < count; i++) {
+                String attribute = reader.readString();
+                String[][] hierarchy = new String[reader.readInt()][];
+                for (int j = 0; j < hierarchy.length; j++) {
+                    hierarchy[j] = new String[reader.readInt()];
+                    for (int k = 0; k < hierarchy[j].length; k++) {
+                        hierarchy[j][k] = reader.readString();
+                    }
+                }
+                hierarchies.put(attribute, hierarchy);
+            }
+
+            // Subset
+            int[] subset = null;
+            int size = reader.readInt();
+            if (size != -1) {
+                subset = new int[size];
+                reader.readInts(subset);
+            }
+
+            return new BenchmarkInput(dataset, header, data, dictionary, hierarchies, subset);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Updates the digest with the content of the given file
+     *
+     * @param digest
+     * @param file
+     * @throws IOException
+     */
+    private void update(MessageDigest digest, File file) throws IOException {
+        if (!file.exists()) {
+            digest.update((byte) 0);
+            return;
+        }
+        digest.update((byte) 1);
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[1 << 16];
+            int read = in.read(buffer);
+            while (read != -1) {
+                digest.update(buffer, 0, read);
+                read = in.read(buffer);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes an entry. The entry is written to a temporary file first, which is
+     * then moved into place, so that concurrent readers never see partial entries.
+     *
+     * @param file
+     * @param key
+     * @param input
+     * @throws IOException
+     */
+    private void write(File file, String key, BenchmarkInput input) throws IOException {
+
+        if (!directory.exists() && !directory.mkdirs() && !directory.exists()) {
+            throw new IOException("Cannot create directory: " + directory);
+        }
+        File temp = File.createTempFile(file.getName(), ".tmp", directory);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, key);
+
+            // Header
+            String[] header = input.getHeader();
+            out.writeInt(header.length);
+            for (String value : header) {
+                writeString(out, value);
+            }
+
+            // Data
+            int[][] data = input.getData();
+            out.writeInt(data.length);
+            for (int[] row : data) {
+                for (int value : row) {
+                    out.writeInt(value);
+                }
+            }
+
+            // Dictionary
+            for (String[] column : input.getMapping()) {
+                out.writeInt(column.length);
+                for (String value : column) {
+                    writeString(out, value);
+                }
+            }
+
+            // Hierarchies
+            out.writeInt(input.getHierarchies().size());
+            for (Entry<String, String[][]> entry : input.getHierarchies().entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeInt(entry.getValue().length);
+                for (String[] row : entry.getValue()) {
+                    out.writeInt(row.length);
+                    for (String value : row) {
+                        writeString(out, value);
+                    }
+                }
+            }
+
+            // Subset
+            int[] subset = input.getSubset();
+            if (subset == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(subset.length);
+                for (int row : subset) {
+                    out.writeInt(row);
+                }
+            }
+        } finally {
+            out.close();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes a string
+     *
+     * @param out
+     * @param value
+     * @throws IOException
+     */
+    private void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(UTF8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * Source code of our CBMS 2014 paper "A benchmark of globally-optimal
+ *      methods for the de-identification of biomedical data"
+ *
+ * Copyright (C) 2014 Florian Kohlmayer, Fabian Prasser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.deidentifier.arx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.deidentifier.arx.BenchmarkSetup.BenchmarkAlgorithm;
+import org.deidentifier.arx.BenchmarkSetup.BenchmarkCriterion;
+import org.deidentifier.arx.BenchmarkSetup.BenchmarkDataset;
+import org.deidentifier.arx.BenchmarkSetup.BenchmarkMetric;
+
+/**
+ * A single cell of the benchmark matrix, i.e. a combination of
+ * an algorithm, a dataset and a set of privacy criteria with their
+ * parameters, a suppression limit and a metric, optionally applied to a scaled version of the dataset or a subset of its
+ * quasi-identifiers
+ *
+ * @author Fabian Prasser
+ */
+public class BenchmarkCell {
+
+    /** The dimensions of the benchmark in addition to the algorithm, the dataset and the criteria */
+    public static final String[]      DIMENSIONS = { "Parameters", "Suppression", "Metric", "Rows", "QIs" };
+
+    /** The name of the algorithm, see {@link BenchmarkAlgorithmFactory#forName(String)} */
+    public final String               algorithm;
+    /** The dataset */
+    public final BenchmarkDataset     dataset;
+    /** The privacy criteria */
+    public final BenchmarkCriterion[] criteria;
+    /** The parameters of the privacy criteria, see {@link BenchmarkSetup#getDefaultParameter(BenchmarkCriterion)} */
+    public final double[]             parameters;
+    /** The maximal fraction of suppressed rows */
+    public final double               suppression;
+    /** The information loss metric */
+    public final BenchmarkMetric      metric;
+    /** The number of rows relative to the dataset, see {@link BenchmarkInput#scale(double)} */
+    public final double               rows;
+    /** The number of quasi-identifiers, which are a prefix of the dataset's quasi-identifiers */
+    public final int                  qis;
+
+    /**
+     * Creates a new cell
+     *
+     * @param algorithm
+     * @param dataset
+     * @param criteria
+     */
+    public BenchmarkCell(BenchmarkAlgorithm algorithm,
+                         BenchmarkDataset dataset,
+                         BenchmarkCriterion[] criteria) {
+        this(algorithm, dataset, criteria, 1d, BenchmarkSetup.getQuasiIdentifyingAttributes(dataset).length);
+    }
+
+    /**
+     * Creates a new cell
+     *
+     * @param algorithm
+     * @param dataset
+     * @param criteria
+     * @param rows The number of rows relative to the dataset
+     * @param qis The number of quasi-identifiers
+     */
+    public BenchmarkCell(BenchmarkAlgorithm algorithm,
+                         BenchmarkDataset dataset,
+                         BenchmarkCriterion[] criteria,
+                         double rows,
+                         int qis) {
+        this(algorithm, dataset, criteria, BenchmarkSetup.getDefaultParameters(criteria), 0d, BenchmarkMetric.ENTROPY, rows, qis);
+    }
+
+    /**
+     * Creates a new cell
+     *
+     * @param algorithm
+     * @param dataset
+     * @param criteria
+     * @param parameters The parameters of the criteria
+     * @param suppression The maximal fraction of suppressed rows
+     * @param metric The information loss metric
+     * @param rows The number of rows relative to the dataset
+     * @param qis The number of quasi-identifiers
+     */
+    public BenchmarkCell(BenchmarkAlgorithm algorithm,
+                         BenchmarkDataset dataset,
+                         BenchmarkCriterion[] criteria,
+                         double[] parameters,
+                         double suppression,
+                         BenchmarkMetric metric,
+                         double rows,
+                         int qis) {
+        this(algorithm.name(), dataset, criteria, parameters, suppression, metric, rows, qis);
+    }
+
+    /**
+     * Creates a new cell
+     *
+     * @param algorithm The name of a built-in algorithm or of a class extending AbstractBenchmarkAlgorithm
+     * @param dataset
+     * @param criteria
+     * @param parameters The parameters of the criteria
+     * @param suppression The maximal fraction of suppressed rows
+     * @param metric The information loss metric
+     * @param rows The number of rows relative to the dataset
+     * @param qis The number of quasi-identifiers
+     */
+    public BenchmarkCell(String algorithm,
+                         BenchmarkDataset dataset,
+                         BenchmarkCriterion[] criteria,
+                         double[] parameters,
+                         double suppression,
+                         BenchmarkMetric metric,
+                         double rows,
+                         int qis) {
+        if (parameters.length != criteria.length) {
+            throw new IllegalArgumentException("Invalid number of parameters: " + parameters.length);
+        }
+        if (suppression < 0d || suppression >= 1d) {
+            throw new IllegalArgumentException("Invalid suppression limit: " + suppression);
+        }
+        if (rows <= 0d) {
+            throw new IllegalArgumentException("Invalid number of rows: " + rows);
+        }
+        if (qis < 1 || qis > BenchmarkSetup.getQuasiIdentifyingAttributes(dataset).length) {
+            throw new IllegalArgumentException("Invalid number of quasi-identifiers: " + qis);
+        }
+        this.algorithm = BenchmarkAlgorithmFactory.forName(algorithm).getName();
+        this.dataset = dataset;
+        this.criteria = criteria;
+        this.parameters = parameters;
+        this.suppression = suppression;
+        this.metric = metric;
+        this.rows = rows;
+        this.qis = qis;
+    }
+
+    /**
+     * Returns the values of the algorithm, the dataset, the criteria and the given dimensions for this cell
+     * 
+     * @param dimensions See {@link #DIMENSIONS}
+     * @return
+     */
+    public String[] getRun(String... dimensions) {
+        String[] run = new String[3 + dimensions.length];
+        run[0] = getLabel();
+        run[1] = dataset.toString();
+        run[2] = Arrays.toString(criteria);
+        for (int i = 0; i < dimensions.length; i++) {
+            run[3 + i] = getValue(dimensions[i]);
+        }
+        return run;
+    }
+
+    /**
+     * Returns the dimensions in which any of the given cells differs from the defaults, i.e. the
+     * dimensions which are required to distinguish the cells in addition to the algorithm, the
+     * dataset and the criteria
+     * 
+     * @param cells
+     * @return
+     */
+    public static String[] getDimensions(List<BenchmarkCell> cells) {
+        List<String> dimensions = new ArrayList<String>();
+        for (String dimension : DIMENSIONS) {
+            for (BenchmarkCell cell : cells) {
+                if (!cell.isDefault(dimension)) {
+                    dimensions.add(dimension);
+                    break;
+                }
+            }
+        }
+        return dimensions.toArray(new String[dimensions.size()]);
+    }
+
+    /**
+     * Returns the header of a benchmark with the given dimensions, see {@link #getRun(String...)}
+     * 
+     * @param dimensions
+     * @return
+     */
+    public static String[] getHeader(String... dimensions) {
+        String[] header = new String[3 + dimensions.length];
+        header[0] = "Algorithm";
+        header[1] = "Dataset";
+        header[2] = "Criteria";
+        System.arraycopy(dimensions, 0, header, 3, dimensions.length);
+        return header;
+    }
+
+    /**
+     * Parses a cell from the representation returned by {@link #serialize()}
+     *
+     * @param string
+     * @return
+     */
+    public static BenchmarkCell deserialize(String string) {
+        String[] fields = string.split("/");
+        if (fields.length != 8) {
+            throw new IllegalArgumentException("Invalid cell: " + string);
+        }
+        String[] names = fields[2].split(",");
+        String[] values = fields[3].split(",");
+        BenchmarkCriterion[] criteria = new BenchmarkCriterion[names.length];
+        double[] parameters = new double[values.length];
+        for (int i = 0; i < names.length; i++) {
+            criteria[i] = BenchmarkCriterion.valueOf(names[i]);
+        }
+        for (int i = 0; i < values.length; i++) {
+            parameters[i] = Double.parseDouble(values[i]);
+        }
+        return new BenchmarkCell(fields[0],
+                                 BenchmarkDataset.valueOf(fields[1]),
+                                 criteria,
+                                 parameters,
+                                 Double.parseDouble(fields[4]),
+                                 BenchmarkMetric.valueOf(fields[5]),
+                                 Double.parseDouble(fields[6]),
+                                 Integer.parseInt(fields[7]));
+    }
+
+    /**
+     * Returns a representation of this cell that can be passed to another JVM
+     *
+     * @return
+     */
+    public String serialize() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(algorithm).append("/").append(dataset.name()).append("/");
+        for (int i = 0; i < criteria.length; i++) {
+            if (i > 0) builder.append(",");
+            builder.append(criteria[i].name());
+        }
+        builder.append("/").append(getParameters());
+        builder.append("/").append(suppression);
+        builder.append("/").append(metric.name());
+        builder.append("/").append(rows);
+        builder.append("/").append(qis);
+        return builder.toString();
+    }
+
+    /**
+     * Returns the value of the given dimension
+     * 
+     * @param dimension
+     * @return
+     */
+    private String getValue(String dimension) {
+        if (dimension.equals("Parameters")) {
+            return getParameters();
+        } else if (dimension.equals("Suppression")) {
+            return String.valueOf(suppression);
+        } else if (dimension.equals("Metric")) {
+            return metric.toString();
+        } else if (dimension.equals("Rows")) {
+            return String.valueOf(rows);
+        } else if (dimension.equals("QIs")) {
+            return String.valueOf(qis);
+        } else {
+            throw new IllegalArgumentException("Invalid dimension: " + dimension);
+        }
+    }
+
+    /**
+     * Returns whether the given dimension has its default value, see {@link #toString()}
+     * 
+     * @param dimension
+     * @return
+     */
+    private boolean isDefault(String dimension) {
+        if (dimension.equals("Parameters")) {
+            return Arrays.equals(parameters, BenchmarkSetup.getDefaultParameters(criteria));
+        } else if (dimension.equals("Suppression")) {
+            return suppression == 0d;
+        } else if (dimension.equals("Metric")) {
+            return metric == BenchmarkMetric.ENTROPY;
+        } else if (dimension.equals("Rows")) {
+            return rows == 1d;
+        } else if (dimension.equals("QIs")) {
+            return qis == BenchmarkSetup.getQuasiIdentifyingAttributes(dataset).length;
+        } else {
+            throw new IllegalArgumentException("Invalid dimension: " + dimension);
+        }
+    }
+
+    /**
+     * Returns the label of the algorithm
+     *
+     * @return
+     */
+    private String getLabel() {
+        return BenchmarkAlgorithmFactory.forName(algorithm).getLabel();
+    }
+
+    /**
+     * Returns the parameters as a comma-separated list, integral values are rendered without decimals
+     *
+     * @return
+     */
+    private String getParameters() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < parameters.length; i++) {
+            if (i > 0) builder.append(",");
+            if (parameters[i] == Math.rint(parameters[i])) {
+                builder.append((long) parameters[i]);
+            } else {
+                builder.append(parameters[i]);
+            }
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        String result = getLabel() + " / " + dataset.toString() + " / " + Arrays.toString(criteria);
+        result = isDefault("Parameters") ? result : result + " / " + getParameters();
+        result = isDefault("Suppression") ? result : result + " / " + suppression + " suppression";
+        result = isDefault("Metric") ? result : result + " / " + metric;
+        result = isDefault("Rows") ? result : result + " / " + rows + "x rows";
+        return isDefault("QIs") ? result : result + " / " + qis + " QIs";
+    }
+}
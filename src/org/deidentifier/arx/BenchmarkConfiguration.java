@@ -0,0 +1,361 @@
+/*
+ * Source code of our CBMS 2014 paper "A benchmark of globally-optimal
+ *      methods for the de-identification of biomedical data"
+ *
+ * Copyright (C) 2014 Florian Kohlmayer, Fabian Prasser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.deidentifier.arx;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.deidentifier.arx.BenchmarkSetup.BenchmarkAlgorithm;
+import org.deidentifier.arx.BenchmarkSetup.BenchmarkCriterion;
+import org.deidentifier.arx.BenchmarkSetup.BenchmarkDataset;
+import org.deidentifier.arx.BenchmarkSetup.BenchmarkMetric;
+import org.deidentifier.arx.BenchmarkSetup.DatasetDefinition;
+
+/**
+ * A benchmark matrix that is read from a properties file, so that parts of the
+ * matrix or additional algorithms can be benchmarked without changing code. Example:
+ * <pre>
+ * algorithms = FLASH, OLA, org.example.AlgorithmExample
+ * datasets = ADULT, CUP
+ * criteria = k(5); k(10); k(5), l(3); d
+ * suppression = 0, 0.05
+ * metrics = ENTROPY, DM_STAR
+ * output = results/results_adult.csv
+ * repetitions = 5
+ * fork = cell
+ * jvm = -Xmx8G -XX:+UseG1GC
+ * dataset.ADULT.data = /data/adult.csv
+ * dataset.ADULT.hierarchies = /data/hierarchies/adult_hierarchy_
+ * dataset.ADULT.subset = /data/adult_subset.csv
+ * dataset.ADULT.qis = age, sex, race
+ * dataset.ADULT.sensitive = occupation
+ * dataset.SYNTHETIC_MEDIUM.rows = 5000000
+ * dataset.SYNTHETIC_MEDIUM.heights = 5, 5, 4, 4, 3, 3
+ * dataset.SYNTHETIC_MEDIUM.skew = 0.5
+ * </pre>
+ * Algorithms are given by name, see {@link BenchmarkAlgorithmFactory}. Criteria are
+ * separated by commas and combinations of criteria by semicolons, parameters are optional.
+ * The files and attributes of datasets can be redefined with the keys "dataset.[name].*".
+ * For synthetic datasets, the keys "rows", "heights", "sensitiveHeight", "fanout", "skew",
+ * "subsetFraction" and "seed" redefine the parameters of the {@link BenchmarkGenerator}.
+ * Note that only the built-in {@link BenchmarkDataset}s can be redefined. Additional datasets
+ * can not be defined in a configuration file, keys of unknown datasets are rejected.
+ * All other keys correspond to the command line options of {@link BenchmarkMain}, which
+ * take precedence over the file.
+ *
+ * @author Fabian Prasser
+ */
+public class BenchmarkConfiguration {
+
+    /** The keys that redefine datasets, see {@link #register()} */
+    private static final List<String> DATASET_KEYS = Arrays.asList("data", "hierarchies", "subset", "qis", "sensitive",
+                                                                   "rows", "heights", "sensitiveHeight", "fanout",
+                                                                   "skew", "subsetFraction", "seed");
+
+    /** The file */
+    private final File       file;
+    /** The properties */
+    private final Properties properties;
+
+    /**
+     * Loads a configuration from the given file
+     *
+     * @param file
+     * @throws IOException
+     */
+    public BenchmarkConfiguration(File file) throws IOException {
+        this.file = file;
+        this.properties = new Properties();
+        InputStream in = new FileInputStream(file);
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Returns the cells of the benchmark matrix, i.e. all combinations of the configured
+     * algorithms, datasets, criteria, suppression limits and metrics. Defaults to the built-in matrix.
+     *
+     * @param defaults The datasets to use if none are configured
+     * @return
+     */
+    public List<BenchmarkCell> getCells(BenchmarkDataset[] defaults) {
+
+        // Parse
+        List<String> algorithms = new ArrayList<String>();
+        for (String name : getList("algorithms", ",")) {
+            algorithms.add(BenchmarkAlgorithmFactory.forName(name).getName());
+        }
+        if (algorithms.isEmpty()) {
+            for (BenchmarkAlgorithm algorithm : BenchmarkSetup.getAlgorithms()) {
+                algorithms.add(algorithm.name());
+            }
+        }
+        BenchmarkDataset[] datasets = getDatasets();
+        datasets = datasets != null ? datasets : defaults;
+        List<BenchmarkCriterion[]> criteria = new ArrayList<BenchmarkCriterion[]>();
+        List<double[]> parameters = new ArrayList<double[]>();
+        for (String combination : getList("criteria", ";")) {
+            String[] elements = combination.split(",");
+            BenchmarkCriterion[] c = new BenchmarkCriterion[elements.length];
+            double[] p = new double[elements.length];
+            for (int i = 0; i < elements.length; i++) {
+                String element = elements[i].trim();
+                String label = element.contains("(") ? element.substring(0, element.indexOf('(')).trim() : element;
+                c[i] = getCriterion(label);
+                if (element.contains("(")) {
+                    if (!element.endsWith(")")) {
+                        throw new IllegalArgumentException("Invalid criterion: " + element);
+                    }
+                    p[i] = Double.parseDouble(element.substring(element.indexOf('(') + 1, element.length() - 1).trim());
+                } else {
+                    p[i] = BenchmarkSetup.getDefaultParameter(c[i]);
+                }
+            }
+            criteria.add(c);
+            parameters.add(p);
+        }
+        if (criteria.isEmpty()) {
+            for (BenchmarkCriterion[] c : BenchmarkSetup.getCriteria()) {
+                criteria.add(c);
+                parameters.add(BenchmarkSetup.getDefaultParameters(c));
+            }
+        }
+        List<Double> suppression = new ArrayList<Double>();
+        for (String limit : getList("suppression", ",")) {
+            suppression.add(Double.parseDouble(limit));
+        }
+        if (suppression.isEmpty()) {
+            suppression.add(0d);
+        }
+        List<BenchmarkMetric> metrics = new ArrayList<BenchmarkMetric>();
+        for (String metric : getList("metrics", ",")) {
+            metrics.add(getMetric(metric));
+        }
+        if (metrics.isEmpty()) {
+            metrics.add(BenchmarkMetric.ENTROPY);
+        }
+
+        // Build
+        List<BenchmarkCell> cells = new ArrayList<BenchmarkCell>();
+
+        // For each algorithm
+        for (String algorithm : algorithms) {
+
+            // For each dataset
+            for (BenchmarkDataset data : datasets) {
+
+                // For each combination of criteria
+                for (int i = 0; i < criteria.size(); i++) {
+
+                    // For each suppression limit
+                    for (double limit : suppression) {
+
+                        // For each metric
+                        for (BenchmarkMetric metric : metrics) {
+                            cells.add(new BenchmarkCell(algorithm, data,
+                                                        criteria.get(i),
+                                                        parameters.get(i),
+                                                        limit,
+                                                        metric,
+                                                        1d,
+                                                        BenchmarkSetup.getQuasiIdentifyingAttributes(data).length));
+                        }
+                    }
+                }
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Returns the configured datasets, or null if there are none
+     *
+     * @return
+     */
+    public BenchmarkDataset[] getDatasets() {
+        List<String> names = getList("datasets", ",");
+        if (names.isEmpty()) {
+            return null;
+        }
+        BenchmarkDataset[] result = new BenchmarkDataset[names.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = getDataset(names.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the file
+     *
+     * @return
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the value of the given option, e.g. "repetitions", or null
+     *
+     * @param name
+     * @return
+     */
+    public String getOption(String name) {
+        String value = properties.getProperty(name);
+        return value == null ? null : value.trim();
+    }
+
+    /**
+     * Redefines the files and attributes of all datasets and the generators of synthetic
+     * datasets as configured, see {@link BenchmarkSetup#setDefinition(BenchmarkDataset, DatasetDefinition)}
+     * and {@link BenchmarkSetup#setGenerator(BenchmarkDataset, BenchmarkGenerator)}
+     */
+    public void register() {
+
+        // Check
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith("dataset.")) {
+                int index = key.lastIndexOf('.');
+                String name = key.substring("dataset.".length(), Math.max(index, "dataset.".length()));
+                if (!getDataset(name).name().equals(name) || !DATASET_KEYS.contains(key.substring(index + 1))) {
+                    throw new IllegalArgumentException("Invalid key: " + key);
+                }
+            }
+        }
+
+        // Register
+        for (BenchmarkDataset dataset : BenchmarkDataset.values()) {
+            String prefix = "dataset." + dataset.name() + ".";
+            String data = getOption(prefix + "data");
+            String hierarchies = getOption(prefix + "hierarchies");
+            String subset = getOption(prefix + "subset");
+            List<String> qis = getList(prefix + "qis", ",");
+            String sensitive = getOption(prefix + "sensitive");
+            if (data != null || hierarchies != null || subset != null || !qis.isEmpty() || sensitive != null) {
+                BenchmarkSetup.setDefinition(dataset, new DatasetDefinition(data,
+                                                                            hierarchies,
+                                                                            subset,
+                                                                            qis.isEmpty() ? null : qis.toArray(new String[qis.size()]),
+                                                                            sensitive));
+            }
+
+            // Generator
+            String rows = getOption(prefix + "rows");
+            List<String> heights = getList(prefix + "heights", ",");
+            String sensitiveHeight = getOption(prefix + "sensitiveHeight");
+            String fanout = getOption(prefix + "fanout");
+            String skew = getOption(prefix + "skew");
+            String fraction = getOption(prefix + "subsetFraction");
+            String seed = getOption(prefix + "seed");
+            if (rows != null || !heights.isEmpty() || sensitiveHeight != null || fanout != null || skew != null ||
+                fraction != null || seed != null) {
+                BenchmarkGenerator defaults = BenchmarkSetup.getGenerator(dataset);
+                int[] qiHeights = defaults.getQuasiIdentifierHeights();
+                if (!heights.isEmpty()) {
+                    qiHeights = new int[heights.size()];
+                    for (int i = 0; i < qiHeights.length; i++) {
+                        qiHeights[i] = Integer.parseInt(heights.get(i));
+                    }
+                }
+                BenchmarkSetup.setGenerator(dataset, new BenchmarkGenerator(rows != null ? Integer.parseInt(rows) : defaults.getRows(),
+                                                                            qiHeights,
+                                                                            sensitiveHeight != null ? Integer.parseInt(sensitiveHeight) : defaults.getSensitiveHeight(),
+                                                                            fanout != null ? Integer.parseInt(fanout) : defaults.getFanout(),
+                                                                            skew != null ? Double.parseDouble(skew) : defaults.getSkew(),
+                                                                            fraction != null ? Double.parseDouble(fraction) : defaults.getSubsetFraction(),
+                                                                            seed != null ? Long.parseLong(seed) : defaults.getSeed()));
+            }
+        }
+    }
+
+    /**
+     * Returns the criterion with the given label
+     *
+     * @param label
+     * @return
+     */
+    private BenchmarkCriterion getCriterion(String label) {
+        for (BenchmarkCriterion criterion : BenchmarkCriterion.values()) {
+            if (criterion.toString().equals(label) || criterion.name().equalsIgnoreCase(label)) {
+                return criterion;
+            }
+        }
+        throw new IllegalArgumentException("Invalid criterion: " + label);
+    }
+
+    /**
+     * Returns the built-in dataset with the given name
+     *
+     * @param name
+     * @return
+     */
+    private BenchmarkDataset getDataset(String name) {
+        for (BenchmarkDataset dataset : BenchmarkDataset.values()) {
+            if (dataset.name().equalsIgnoreCase(name)) {
+                return dataset;
+            }
+        }
+        throw new IllegalArgumentException("Invalid dataset: " + name + ", only built-in datasets can be configured");
+    }
+
+    /**
+     * Returns the metric with the given label
+     *
+     * @param label
+     * @return
+     */
+    private BenchmarkMetric getMetric(String label) {
+        for (BenchmarkMetric metric : BenchmarkMetric.values()) {
+            if (metric.toString().equals(label) || metric.name().equalsIgnoreCase(label)) {
+                return metric;
+            }
+        }
+        throw new IllegalArgumentException("Invalid metric: " + label);
+    }
+
+    /**
+     * Returns the non-empty elements of the given list-valued option
+     *
+     * @param name
+     * @param separator
+     * @return
+     */
+    private List<String> getList(String name, String separator) {
+        List<String> result = new ArrayList<String>();
+        String value = getOption(name);
+        if (value != null) {
+            for (String element : value.split(separator)) {
+                if (!element.trim().isEmpty()) {
+                    result.add(element.trim());
+                }
+            }
+        }
+        return result;
+    }
+}
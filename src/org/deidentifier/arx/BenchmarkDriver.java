@@ -20,17 +20,15 @@
 
 package org.deidentifier.arx;
 
+import java.io.File;
 import java.io.IOException;
 
 import org.deidentifier.arx.BenchmarkSetup.BenchmarkAlgorithm;
 import org.deidentifier.arx.BenchmarkSetup.BenchmarkCriterion;
 import org.deidentifier.arx.BenchmarkSetup.BenchmarkDataset;
+import org.deidentifier.arx.BenchmarkTuning.Settings;
 import org.deidentifier.arx.algorithm.AbstractBenchmarkAlgorithm;
-import org.deidentifier.arx.algorithm.AlgorithmBFS;
-import org.deidentifier.arx.algorithm.AlgorithmDFS;
-import org.deidentifier.arx.algorithm.AlgorithmFlash;
-import org.deidentifier.arx.algorithm.AlgorithmIncognito;
-import org.deidentifier.arx.algorithm.AlgorithmOLA;
+import org.deidentifier.arx.algorithm.TimeLimitExceededException;
 import org.deidentifier.arx.framework.check.INodeChecker;
 import org.deidentifier.arx.framework.check.NodeChecker;
 import org.deidentifier.arx.framework.data.DataManager;
@@ -38,60 +36,157 @@ import org.deidentifier.arx.framework.data.Dictionary;
 import org.deidentifier.arx.framework.lattice.Lattice;
 import org.deidentifier.arx.framework.lattice.LatticeBuilder;
 import org.deidentifier.arx.framework.lattice.Node;
+import org.deidentifier.arx.metric.TimedMetric;
 import org.deidentifier.arx.test.TestConfiguration;
 
-import de.linearbits.subframe.Benchmark;
-
 /**
  * This class implements the main benchmark driver
  * @author Fabian Prasser
  */
 public class BenchmarkDriver {
 
-    /** Snapshot size. */
-    private final double    snapshotSizeDataset  = 0.2d;
+    /** Settings of the history for each algorithm and dataset */
+    private final BenchmarkTuning tuning;
+
+    /** Cache of encoded datasets */
+    private final BenchmarkCache  cache;
 
-    /** Snapshot size snapshot */
-    private final double    snapshotSizeSnapshot = 0.8d;
+    /** Time limit per cell in milliseconds, 0 if unlimited */
+    private final long            timeLimit;
 
-    /** History size. */
-    private final int       historySize          = 200;
+    /** Whether runs are the only ones executed in this JVM */
+    private volatile boolean      exclusive = true;
 
-    /** The benchmark instance */
-    private final Benchmark benchmark;
+    /** The number of threads of parallel algorithms */
+    private volatile int          threads   = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Creates a new benchmark driver, which caches encoded datasets in the directory "cache"
+     * and uses the default settings of the history
+     */
+    public BenchmarkDriver() {
+        this(new BenchmarkCache(new File("cache")), new BenchmarkTuning(), 0L);
+    }
 
     /**
      * Creates a new benchmark driver
      * 
-     * @param benchmark
+     * @param cache
+     * @param tuning Settings of the history
+     * @param timeLimit Time limit per cell in milliseconds, 0 if unlimited, see {@link #getDeadline()}
      */
-    public BenchmarkDriver(Benchmark benchmark) {
-        this.benchmark = benchmark;
+    public BenchmarkDriver(BenchmarkCache cache, BenchmarkTuning tuning, long timeLimit) {
+        if (timeLimit < 0L) {
+            throw new IllegalArgumentException("Time limit must not be negative");
+        }
+        this.cache = cache;
+        this.tuning = tuning;
+        this.timeLimit = timeLimit;
     }
 
     /**
-     * Performs data anonymization
+     * Sets whether runs are the only ones executed in this JVM. If they are not, measures
+     * that are properties of the whole JVM are recorded as NaN, see {@link BenchmarkMonitor}.
      * 
-     * @param dataset
-     * @param criteria
-     * @param algorithm
-     * @param warmup
+     * @param exclusive
+     */
+    public void setExclusive(boolean exclusive) {
+        this.exclusive = exclusive;
+    }
+
+    /**
+     * Sets the number of threads of parallel algorithms, which defaults to the number of
+     * available processors. Cells executed concurrently should share the processors.
+     * 
+     * @param threads
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Performs data anonymization. Measurements are stored in the given result,
+     * which may be <code>null</code> for warmup runs. This method is thread-safe.
+     * Runs exceeding the deadline are aborted at the next check, their partial
+     * counters and the best transformation found so far are recorded. If no
+     * anonymous transformation has been found, the information loss is NaN.
+     * 
+     * @param cell
+     * @param result
+     * @param deadline The deadline in milliseconds since the epoch, see {@link #getDeadline()}
+     * @return Whether the run completed before the deadline
+     * @throws IOException
+     */
+    public boolean anonymize(BenchmarkCell cell, BenchmarkResult result, long deadline) throws IOException {
+        return anonymize(cell, result, tuning.get(cell.algorithm, cell.dataset), deadline);
+    }
+
+    /**
+     * Performs data anonymization with the given settings of the history, see
+     * {@link #anonymize(BenchmarkCell, BenchmarkResult, long)}
+     * 
+     * @param cell
+     * @param result
+     * @param settings
+     * @param deadline The deadline in milliseconds since the epoch, see {@link #getDeadline()}
+     * @return Whether the run completed before the deadline
      * @throws IOException
      */
-    public void anonymize(BenchmarkDataset dataset,
-                          BenchmarkCriterion[] criteria,
-                          BenchmarkAlgorithm algorithm,
-                          boolean warmup) throws IOException {
+    public boolean anonymize(BenchmarkCell cell, BenchmarkResult result, Settings settings, long deadline) throws IOException {
 
         // Build implementation
-        AbstractBenchmarkAlgorithm implementation = getImplementation(dataset, criteria, algorithm);
+        AbstractBenchmarkAlgorithm implementation = getImplementation(cell, result, settings);
 
         // Execute
-        if (!warmup) benchmark.startTimer(BenchmarkMain.EXECUTION_TIME);
-        implementation.traverse();
-        if (!warmup) benchmark.addStopTimer(BenchmarkMain.EXECUTION_TIME);
-        if (!warmup) benchmark.addValue(BenchmarkMain.NUMBER_OF_CHECKS, implementation.getNumChecks());
-        if (!warmup) benchmark.addValue(BenchmarkMain.NUMBER_OF_ROLLUPS, implementation.getNumRollups());
+        BenchmarkMonitor monitor = new BenchmarkMonitor(exclusive);
+        boolean completed = true;
+        implementation.setDeadline(deadline);
+        monitor.start();
+        long time = System.nanoTime();
+        try {
+            implementation.traverse();
+        } catch (TimeLimitExceededException e) {
+            completed = false;
+        }
+        time = System.nanoTime() - time;
+        if (result != null) {
+            monitor.stop(result, implementation.getWorkerCpuTime(), implementation.getWorkerAllocatedBytes());
+            result.addValue(BenchmarkMain.EXECUTION_TIME, time);
+            result.addValue(BenchmarkMain.NUMBER_OF_CHECKS, implementation.getNumChecks());
+            result.addValue(BenchmarkMain.NUMBER_OF_ROLLUPS, implementation.getNumRollups());
+            result.addValue(BenchmarkMain.CHECK_TIME, implementation.getCheckTime());
+            result.addValue(BenchmarkMain.METRIC_EVAL_TIME, implementation.getMetricTime());
+            result.addValue(BenchmarkMain.TIMEOUTS, completed ? 0d : 1d);
+
+            // The implementation is still reachable, as it is used below
+            monitor.addRetainedHeap(result);
+            Node optimum = implementation.getGlobalOptimum();
+            result.addValue(BenchmarkMain.INFORMATION_LOSS, optimum != null ? optimum.getInformationLoss().getValue() : Double.NaN);
+        }
+        return completed;
+    }
+
+    /**
+     * Returns the settings that affect the measurements of this driver, i.e. the time
+     * limit, the number of threads of parallel algorithms and the tuned settings
+     * 
+     * @return
+     */
+    public String getSettings() {
+        return "timeLimit=" + timeLimit + ", threads=" + threads + ", tuning=" + tuning;
+    }
+
+    /**
+     * Returns the deadline of a cell that is started now, i.e. the current time plus the
+     * time limit, or {@link Long#MAX_VALUE} if there is no time limit
+     * 
+     * @return
+     */
+    public long getDeadline() {
+        return timeLimit > 0L ? System.currentTimeMillis() + timeLimit : Long.MAX_VALUE;
     }
 
     /**
@@ -100,7 +195,6 @@ public class BenchmarkDriver {
      * @param dataset
      * @param criteria
      * @param algorithm
-     * @param warmup
      * @throws IOException
      */
     public TestConfiguration test(BenchmarkDataset dataset,
@@ -122,80 +216,133 @@ public class BenchmarkDriver {
     }
 
     /**
+     * Builds a ready-to-run instance of the given algorithm, including its own
+     * DataManager, Lattice and NodeChecker
+     * 
      * @param dataset
      * @param criteria
      * @param algorithm
      * @return
      * @throws IOException
      */
-    private AbstractBenchmarkAlgorithm getImplementation(BenchmarkDataset dataset,
-                                                         BenchmarkCriterion[] criteria,
-                                                         BenchmarkAlgorithm algorithm) throws IOException {
+    public AbstractBenchmarkAlgorithm getImplementation(BenchmarkDataset dataset,
+                                                        BenchmarkCriterion[] criteria,
+                                                        BenchmarkAlgorithm algorithm) throws IOException {
+        return getImplementation(new BenchmarkCell(algorithm, dataset, criteria));
+    }
+
+    /**
+     * Builds a ready-to-run instance of the algorithm for the given cell, including
+     * its own DataManager, Lattice and NodeChecker
+     * 
+     * @param cell
+     * @return
+     * @throws IOException
+     */
+    public AbstractBenchmarkAlgorithm getImplementation(BenchmarkCell cell) throws IOException {
+        return getImplementation(cell, null, tuning.get(cell.algorithm, cell.dataset));
+    }
+
+    /**
+     * Returns the current time and stores the time elapsed since the given
+     * start time in the given result, if any
+     * 
+     * @param result
+     * @param measure
+     * @param start
+     * @return
+     */
+    private long addPhase(BenchmarkResult result, int measure, long start) {
+        long time = System.nanoTime();
+        if (result != null) {
+            result.addValue(measure, time - start);
+        }
+        return time;
+    }
+
+    /**
+     * Builds a ready-to-run instance of the given algorithm. The time spent in
+     * each phase of the setup is stored in the given result, if any.
+     * 
+     * @param cell
+     * @param result
+     * @param settings
+     * @return
+     * @throws IOException
+     */
+    private AbstractBenchmarkAlgorithm getImplementation(BenchmarkCell cell,
+                                                         BenchmarkResult result,
+                                                         Settings settings) throws IOException {
+
         // Prepare
-        Data data = BenchmarkSetup.getData(dataset, criteria);
-        ARXConfiguration config = BenchmarkSetup.getConfiguration(dataset, criteria);
-        DataHandle handle = data.getHandle();
+        BenchmarkAlgorithmFactory factory = BenchmarkAlgorithmFactory.forName(cell.algorithm);
+        BenchmarkCriterion[] criteria = cell.criteria;
+        long time = System.nanoTime();
+        BenchmarkInput input = cache.get(cell.dataset, cell.rows);
+        ARXConfiguration config = BenchmarkSetup.getConfiguration(input, criteria, cell.parameters, cell.suppression, cell.metric);
+        config.setMetric(TimedMetric.create(config.getMetric()));
+        DataDefinition definition = input.getDefinition(criteria, cell.qis);
+        time = addPhase(result, BenchmarkMain.LOAD_TIME, time);
 
         // Encode
-        final String[] header = ((DataHandleInput) handle).header;
-        final int[][] dataArray = ((DataHandleInput) handle).data;
-        final Dictionary dictionary = ((DataHandleInput) handle).dictionary;
-        final DataManager manager = new DataManager(header,
-                                                    dataArray,
+        final Dictionary dictionary = input.getDictionary();
+        final DataManager manager = new DataManager(input.getHeader(),
+                                                    input.getData(),
                                                     dictionary,
-                                                    data.getDefinition(),
+                                                    definition,
                                                     config.getCriteria());
 
         // Initialize
         config.initialize(manager);
+        time = addPhase(result, BenchmarkMain.ENCODE_TIME, time);
 
         // Build or clean the lattice
         Lattice lattice = new LatticeBuilder(manager.getMaxLevels(),
                                              manager.getMinLevels()).build();
+        time = addPhase(result, BenchmarkMain.LATTICE_TIME, time);
+        if (result != null) {
+            result.addValue(BenchmarkMain.LATTICE_SIZE, lattice.getSize());
+            result.addValue(BenchmarkMain.LATTICE_LEVELS, lattice.getLevels().length);
+            result.addValue(BenchmarkMain.HISTORY_SIZE, settings.historySize);
+            result.addValue(BenchmarkMain.SNAPSHOT_DATASET, settings.snapshotSizeDataset);
+            result.addValue(BenchmarkMain.SNAPSHOT_SNAPSHOT, settings.snapshotSizeSnapshot);
+            result.addValue(BenchmarkMain.THREADS, factory.isParallel() ? threads : 1);
+        }
 
         // Build a node checker, for all algorithms but Incognito
         INodeChecker checker = null;
-        if (algorithm != BenchmarkAlgorithm.INCOGNITO){
+        if (factory.isCheckerRequired()){
             checker = new NodeChecker(  manager,
                                         config.getMetric(),
                                         config.getInternalConfiguration(),
-                                        historySize,
-                                        snapshotSizeDataset,
-                                        snapshotSizeSnapshot);
+                                        settings.historySize,
+                                        settings.snapshotSizeDataset,
+                                        settings.snapshotSizeSnapshot);
         }
+        long checkerTime = System.nanoTime() - time;
 
         // Initialize the metric
-        config.getMetric().initialize(handle.getDefinition(),
+        time = System.nanoTime();
+        config.getMetric().initialize(definition,
                                       manager.getDataQI(),
                                       manager.getHierarchies(),
                                       config);
+        time = addPhase(result, BenchmarkMain.METRIC_TIME, time);
 
         // Create an algorithm instance
-        AbstractBenchmarkAlgorithm implementation;
-        switch (algorithm) {
-        case BFS:
-            implementation = new AlgorithmBFS(lattice, checker);
-            break;
-        case DFS:
-            implementation = new AlgorithmDFS(lattice, checker);
-            break;
-        case FLASH:
-            implementation = new AlgorithmFlash(lattice, checker, manager.getHierarchies());
-            break;
-        case INCOGNITO:
-            implementation = new AlgorithmIncognito(lattice, manager,
-                                                             config.getMetric(),
-                                                             config.getInternalConfiguration(),
-                                                             historySize,
-                                                             snapshotSizeDataset,
-                                                             snapshotSizeSnapshot);
-            break;
-        case OLA:
-            implementation = new AlgorithmOLA(lattice, checker);
-            break;
-        default:
-            throw new RuntimeException("Invalid algorithm");
-        }
+        AbstractBenchmarkAlgorithm implementation = factory.create(lattice,
+                                                                   checker,
+                                                                   manager,
+                                                                   config,
+                                                                   settings.historySize,
+                                                                   settings.snapshotSizeDataset,
+                                                                   settings.snapshotSizeSnapshot,
+                                                                   threads);
+        implementation.setMonotonic(config.isCriterionMonotonic());
+        implementation.setMetricMonotonic(cell.suppression == 0d || config.getMetric().isMonotonic());
+
+        // Includes the construction of the algorithm, as Incognito builds its own checker
+        addPhase(result, BenchmarkMain.CHECKER_TIME, time - checkerTime);
         return implementation;
     }
 }
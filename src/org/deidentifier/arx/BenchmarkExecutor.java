@@ -0,0 +1,284 @@
+/*
+ * Source code of our CBMS 2014 paper "A benchmark of globally-optimal
+ *      methods for the de-identification of biomedical data"
+ *
+ * Copyright (C) 2014 Florian Kohlmayer, Fabian Prasser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.deidentifier.arx;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.deidentifier.arx.BenchmarkFork.ForkMode;
+
+import de.linearbits.subframe.Benchmark;
+
+/**
+ * This class executes the cells of the benchmark matrix. Independent cells are
+ * executed concurrently by a configurable number of workers. Each execution builds
+ * its own DataManager, Lattice and NodeChecker, results are committed to the
+ * benchmark in the order of the matrix. Optionally, cells can be executed in
+ * forked JVMs, see {@link BenchmarkFork}.
+ *
+ * Note: concurrent workers compete for caches and memory bandwidth. Execution
+ * times obtained with more than one worker are therefore not directly comparable
+ * to sequential results.
+ *
+ * @author Fabian Prasser
+ */
+public class BenchmarkExecutor {
+
+    /** The benchmark instance */
+    private final Benchmark            benchmark;
+    /** The driver */
+    private final BenchmarkDriver      driver;
+    /** The number of workers */
+    private final int                  workers;
+    /** Repetitions */
+    private final BenchmarkRepetitions repetitions;
+    /** Forked execution, null if cells are executed in this JVM */
+    private final BenchmarkFork        fork;
+
+    /**
+     * Creates a new executor, which executes all cells in this JVM
+     *
+     * @param benchmark
+     * @param driver
+     * @param workers
+     * @param repetitions
+     */
+    public BenchmarkExecutor(Benchmark benchmark, BenchmarkDriver driver, int workers, BenchmarkRepetitions repetitions) {
+        this(benchmark, driver, workers, repetitions, null);
+    }
+
+    /**
+     * Creates a new executor
+     *
+     * @param benchmark
+     * @param driver
+     * @param workers
+     * @param repetitions
+     * @param fork Forked execution, <code>null</code> to execute all cells in this JVM
+     */
+    public BenchmarkExecutor(Benchmark benchmark, BenchmarkDriver driver, int workers, BenchmarkRepetitions repetitions, BenchmarkFork fork) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Number of workers must be positive");
+        }
+        this.benchmark = benchmark;
+        this.driver = driver;
+        this.workers = workers;
+        this.repetitions = repetitions;
+        this.fork = fork;
+
+        // Cells executed concurrently in this JVM share its resources
+        this.driver.setExclusive(workers == 1 || fork != null);
+    }
+
+    /**
+     * Executes the given cells and writes the results incrementally to the given file.
+     * Completed cells are recorded in a journal next to the file ([file].journal) as soon
+     * as they have been executed, while results are committed in the order of the cells.
+     * When a sweep is restarted, journaled cells are skipped and their results are restored
+     * from the journal. A journal recorded with other settings, e.g. repetitions, time limit,
+     * JVM arguments or tuned settings, is not resumed. Delete the journal to start from scratch.
+     *
+     * @param cells
+     * @param file
+     * @param dimensions The dimensions of the benchmark, see {@link BenchmarkCell#getRun(String...)}
+     * @throws IOException
+     */
+    public void execute(List<BenchmarkCell> cells, File file, String... dimensions) throws IOException {
+
+        // Group cells that are executed together
+        List<List<BenchmarkCell>> groups = getGroups(cells);
+
+        // Restore journaled groups
+        final BenchmarkJournal journal = new BenchmarkJournal(new File(file.getPath() + ".journal"), getSettings());
+        if (journal.size() > 0) {
+            System.out.println("Resuming: " + journal.size() + " cells journaled");
+        }
+        List<BenchmarkResult[]> journaled = new ArrayList<BenchmarkResult[]>();
+        for (List<BenchmarkCell> group : groups) {
+            BenchmarkResult[] results = new BenchmarkResult[group.size()];
+            boolean complete = true;
+            for (int i = 0; i < results.length; i++) {
+                results[i] = journal.take(group.get(i));
+                complete &= results[i] != null;
+            }
+            journaled.add(complete ? results : null);
+        }
+
+        // Submit all other groups
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        List<Future<BenchmarkResult[]>> futures = new ArrayList<Future<BenchmarkResult[]>>();
+        for (int i = 0; i < groups.size(); i++) {
+            final List<BenchmarkCell> group = groups.get(i);
+            futures.add(journaled.get(i) != null ? null : pool.submit(new Callable<BenchmarkResult[]>() {
+                @Override
+                public BenchmarkResult[] call() throws Exception {
+                    BenchmarkResult[] results = execute(group);
+                    for (int j = 0; j < results.length; j++) {
+                        journal.append(group.get(j), results[j]);
+                    }
+                    return results;
+                }
+            }));
+        }
+
+        try {
+            // Collect results in order
+            for (int i = 0; i < groups.size(); i++) {
+                BenchmarkResult[] results = journaled.get(i);
+                if (results == null) {
+                    results = getResults(futures.get(i));
+                }
+                for (int j = 0; j < results.length; j++) {
+                    results[j].commit(benchmark, groups.get(i).get(j).getRun(dimensions));
+
+                    // Write results incrementally
+                    benchmark.getResults().write(file);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            journal.close();
+        }
+    }
+
+    /**
+     * Executes a single cell
+     *
+     * @param cell
+     * @return
+     * @throws IOException
+     */
+    public BenchmarkResult execute(BenchmarkCell cell) throws IOException {
+
+        // Warmup run, which has a time limit of its own
+        driver.anonymize(cell, null, driver.getDeadline());
+
+        // Print status info
+        System.out.println("Running: " + cell.toString());
+
+        // Repeat, all repetitions share the time limit of the cell
+        BenchmarkResult result = new BenchmarkResult();
+        long deadline = driver.getDeadline();
+        long start = System.currentTimeMillis();
+        int count = 0;
+        while (repetitions.isRepeat(result.getValues(BenchmarkMain.EXECUTION_TIME), System.currentTimeMillis() - start)) {
+            BenchmarkResult run = new BenchmarkResult();
+            boolean completed = driver.anonymize(cell, run, deadline);
+
+            // An aborted run is only recorded if no run has completed, so that partial
+            // counters are not averaged with complete ones
+            if (completed || count == 0) {
+                result.addAll(run);
+                count++;
+            }
+            if (!completed) {
+                System.out.println("Time limit exceeded: " + cell.toString());
+                break;
+            }
+        }
+        result.addValue(BenchmarkMain.NUMBER_OF_REPETITIONS, count);
+        return result;
+    }
+
+    /**
+     * Executes a group of cells, either in this JVM or in forked JVMs
+     *
+     * @param group
+     * @return
+     * @throws IOException
+     */
+    private BenchmarkResult[] execute(List<BenchmarkCell> group) throws IOException {
+        if (fork != null) {
+            return fork.execute(group);
+        } else {
+            BenchmarkResult[] results = new BenchmarkResult[group.size()];
+            for (int i = 0; i < results.length; i++) {
+                results[i] = execute(group.get(i));
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Groups the cells into units of execution. Cells are only grouped when
+     * all cells of an algorithm are executed in one forked JVM.
+     *
+     * @param cells
+     * @return
+     */
+    private List<List<BenchmarkCell>> getGroups(List<BenchmarkCell> cells) {
+        List<List<BenchmarkCell>> groups = new ArrayList<List<BenchmarkCell>>();
+        List<BenchmarkCell> group = null;
+        for (BenchmarkCell cell : cells) {
+            boolean join = fork != null && fork.getMode() == ForkMode.ALGORITHM &&
+                           group != null && group.get(0).algorithm.equals(cell.algorithm);
+            if (!join) {
+                group = new ArrayList<BenchmarkCell>();
+                groups.add(group);
+            }
+            group.add(cell);
+        }
+        return groups;
+    }
+
+    /**
+     * Returns the settings of this executor that affect the results, which are recorded
+     * in the header of the journal
+     *
+     * @return
+     */
+    private String getSettings() {
+        return "repetitions=" + repetitions.serialize() + ", workers=" + workers + ", " + driver.getSettings() +
+               ", fork=" + (fork != null ? fork.toString() : "none");
+    }
+
+    /**
+     * Waits for the given future and returns its results
+     *
+     * @param future
+     * @return
+     * @throws IOException
+     */
+    private BenchmarkResult[] getResults(Future<BenchmarkResult[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for benchmark results", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new RuntimeException(cause);
+            }
+        }
+    }
+}
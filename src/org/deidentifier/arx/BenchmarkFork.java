@@ -0,0 +1,254 @@
+/*
+ * Source code of our CBMS 2014 paper "A benchmark of globally-optimal
+ *      methods for the de-identification of biomedical data"
+ *
+ * Copyright (C) 2014 Florian Kohlmayer, Fabian Prasser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.deidentifier.arx;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.ProcessBuilder.Redirect;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class executes cells of the benchmark matrix in freshly forked JVMs, so that
+ * JIT profiles and heap state do not carry over from one cell (or algorithm) to the next.
+ * Measurements are sent back to the parent process via the standard output of the child.
+ *
+ * @author Fabian Prasser
+ */
+public class BenchmarkFork {
+
+    /**
+     * The granularity at which JVMs are forked
+     */
+    public static enum ForkMode {
+        CELL {
+            @Override
+            public String toString() {
+                return "cell";
+            }
+        },
+        ALGORITHM {
+            @Override
+            public String toString() {
+                return "algorithm";
+            }
+        },
+    }
+
+    /** Prefix of lines containing results */
+    private static final String        PREFIX = "@result ";
+
+    /** The mode */
+    private final ForkMode             mode;
+    /** The number of forks per cell */
+    private final int                  forks;
+    /** The arguments for the forked JVMs */
+    private final List<String>         jvmArgs;
+    /** Repetitions */
+    private final BenchmarkRepetitions repetitions;
+    /** Time limit per cell in milliseconds, 0 if unlimited */
+    private final long                 timeLimit;
+    /** The number of threads of parallel algorithms */
+    private final int                  threads;
+    /** The configuration file, null if there is none */
+    private final File                 configuration;
+
+    /**
+     * Creates a new instance
+     *
+     * @param mode
+     * @param forks
+     * @param jvmArgs Arguments for the child JVMs, <code>null</code> for none. Arguments of this JVM,
+     *                e.g. agents or debugging flags, are not passed on to the children.
+     * @param repetitions
+     * @param timeLimit Time limit per cell in milliseconds, 0 if unlimited
+     * @param threads The number of threads of parallel algorithms
+     * @param configuration The configuration file, which defines datasets for the child JVMs, or null
+     */
+    public BenchmarkFork(ForkMode mode,
+                         int forks,
+                         List<String> jvmArgs,
+                         BenchmarkRepetitions repetitions,
+                         long timeLimit,
+                         int threads,
+                         File configuration) {
+        if (forks < 1) {
+            throw new IllegalArgumentException("Number of forks must be positive");
+        }
+        this.mode = mode;
+        this.forks = forks;
+        this.jvmArgs = jvmArgs != null ? jvmArgs : new ArrayList<String>();
+        this.repetitions = repetitions;
+        this.timeLimit = timeLimit;
+        this.threads = threads;
+        this.configuration = configuration;
+    }
+
+    /**
+     * Entry point of the child JVMs. Arguments are the serialized repetitions, the time
+     * limit, the configuration file (or "-") and the number of threads, followed by the
+     * serialized cells to execute.
+     *
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+
+        BenchmarkRepetitions repetitions = BenchmarkRepetitions.deserialize(args[0]);
+        if (!args[2].equals("-")) {
+            new BenchmarkConfiguration(new File(args[2])).register();
+        }
+        BenchmarkDriver driver = new BenchmarkDriver(new BenchmarkCache(new File("cache")),
+                                                     new BenchmarkTuning(new File("results/tuning.properties")),
+                                                     Long.parseLong(args[1]));
+        driver.setThreads(Integer.parseInt(args[3]));
+        BenchmarkExecutor executor = new BenchmarkExecutor(null, driver, 1, repetitions);
+
+        // Execute each cell and report back to the parent
+        for (int i = 4; i < args.length; i++) {
+            BenchmarkResult result = executor.execute(BenchmarkCell.deserialize(args[i]));
+            System.out.println(PREFIX + (i - 4) + " " + result.toString());
+            System.out.flush();
+        }
+    }
+
+    /**
+     * Executes the given cells in the configured number of forked JVMs and returns
+     * the merged results for each cell
+     *
+     * @param cells
+     * @return
+     * @throws IOException
+     */
+    public BenchmarkResult[] execute(List<BenchmarkCell> cells) throws IOException {
+
+        BenchmarkResult[] results = new BenchmarkResult[cells.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = new BenchmarkResult();
+        }
+        for (int fork = 0; fork < forks; fork++) {
+            BenchmarkResult[] forked = fork(cells);
+            for (int i = 0; i < results.length; i++) {
+                results[i].addAll(forked[i]);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns the mode
+     *
+     * @return
+     */
+    public ForkMode getMode() {
+        return mode;
+    }
+
+    @Override
+    public String toString() {
+        return mode + " x" + forks + " " + jvmArgs;
+    }
+
+    /**
+     * Executes the given cells in one forked JVM
+     *
+     * @param cells
+     * @return
+     * @throws IOException
+     */
+    private BenchmarkResult[] fork(List<BenchmarkCell> cells) throws IOException {
+
+        // Build command
+        List<String> command = new ArrayList<String>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(BenchmarkFork.class.getName());
+        command.add(repetitions.serialize());
+        command.add(String.valueOf(timeLimit));
+        command.add(configuration != null ? configuration.getAbsolutePath() : "-");
+        command.add(String.valueOf(threads));
+        for (BenchmarkCell cell : cells) {
+            command.add(cell.serialize());
+        }
+
+        // Start
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectError(Redirect.INHERIT);
+        Process process = builder.start();
+
+        // Collect results and forward everything else
+        BenchmarkResult[] results = new BenchmarkResult[cells.size()];
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        try {
+            String line = reader.readLine();
+            while (line != null) {
+                if (line.startsWith(PREFIX)) {
+                    String[] fields = line.substring(PREFIX.length()).split(" ", 2);
+                    results[Integer.parseInt(fields[0])] = BenchmarkResult.parse(fields.length > 1 ? fields[1] : "");
+                } else {
+                    System.out.println(line);
+                }
+                line = reader.readLine();
+            }
+        } finally {
+            reader.close();
+        }
+
+        // Check
+        int exitCode;
+        try {
+            exitCode = process.waitFor();
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for forked JVM", e);
+        }
+        if (exitCode != 0) {
+            throw new IOException("Forked JVM terminated with exit code " + exitCode + " while executing " + cells);
+        }
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                throw new IOException("Forked JVM did not report results for " + cells.get(i));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Parses JVM arguments separated by whitespace
+     *
+     * @param args
+     * @return
+     */
+    public static List<String> parseJvmArgs(String args) {
+        if (args == null) {
+            return null;
+        }
+        List<String> result = new ArrayList<String>(Arrays.asList(args.trim().split("\\s+")));
+        result.remove("");
+        return result;
+    }
+}
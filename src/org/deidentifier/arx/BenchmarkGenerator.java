@@ -0,0 +1,384 @@
+/*
+ * Source code of our CBMS 2014 paper "A benchmark of globally-optimal
+ *      methods for the de-identification of biomedical data"
+ *
+ * Copyright (C) 2014 Florian Kohlmayer, Fabian Prasser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.deidentifier.arx;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates synthetic datasets together with matching generalization hierarchies
+ * and a research subset. Each attribute has a balanced hierarchy with the given
+ * height and fan-out, i.e. fanout^(height-1) distinct values, which are drawn from
+ * a Zipf distribution. Generation is deterministic for a given seed.
+ *
+ * @author Fabian Prasser
+ */
+public class BenchmarkGenerator {
+
+    /** Charset */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** Number of rows */
+    private final int            rows;
+    /** Heights of the hierarchies of the quasi-identifiers */
+    private final int[]          heights;
+    /** Height of the hierarchy of the sensitive attribute */
+    private final int            sensitiveHeight;
+    /** Fan-out of all hierarchies */
+    private final int            fanout;
+    /** Exponent of the Zipf distribution, 0 for uniformly distributed values */
+    private final double         skew;
+    /** Fraction of rows in the research subset */
+    private final double         subset;
+    /** Seed */
+    private final long           seed;
+
+    /**
+     * Creates a new generator
+     *
+     * @param rows Number of rows
+     * @param heights Heights of the hierarchies of the quasi-identifiers, including the level of the original values
+     * @param sensitiveHeight Height of the hierarchy of the sensitive attribute
+     * @param fanout Fan-out of all hierarchies
+     * @param skew Exponent of the Zipf distribution of values, 0 for uniformly distributed values
+     * @param subset Fraction of rows in the research subset
+     * @param seed Seed
+     */
+    public BenchmarkGenerator(int rows, int[] heights, int sensitiveHeight, int fanout, double skew, double subset, long seed) {
+        if (rows < 1 || heights.length < 1 || sensitiveHeight < 2 || fanout < 2 || skew < 0d || subset <= 0d || subset > 1d) {
+            throw new IllegalArgumentException("Invalid parameters: " + Arrays.toString(heights));
+        }
+        for (int height : heights) {
+            if (height < 2 || Math.pow(fanout, height - 1) > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Invalid height: " + height);
+            }
+        }
+        this.rows = rows;
+        this.heights = heights;
+        this.sensitiveHeight = sensitiveHeight;
+        this.fanout = fanout;
+        this.skew = skew;
+        this.subset = subset;
+        this.seed = seed;
+    }
+
+    /**
+     * Generates the dataset, the research subset and the hierarchies of all attributes
+     *
+     * @param dataFile
+     * @param subsetFile
+     * @param hierarchyFiles The files of the hierarchies of the quasi-identifiers followed by the sensitive attribute
+     * @throws IOException
+     */
+    public void generate(File dataFile, File subsetFile, File[] hierarchyFiles) throws IOException {
+
+        // Prepare
+        String[] attributes = getAttributes();
+        int[] heights = getHeights();
+        if (hierarchyFiles.length != attributes.length) {
+            throw new IllegalArgumentException("Invalid number of hierarchies");
+        }
+        Random random = new Random(seed);
+
+        // Hierarchies and distributions
+        double[][] distributions = new double[attributes.length][];
+        int[][] permutations = new int[attributes.length][];
+        for (int i = 0; i < attributes.length; i++) {
+            int size = getDomainSize(heights[i]);
+            distributions[i] = getDistribution(size);
+            permutations[i] = getPermutation(size, random);
+            writeHierarchy(hierarchyFiles[i], heights[i]);
+        }
+
+        // Data and subset
+        Writer data = getWriter(dataFile);
+        Writer subset = getWriter(subsetFile);
+        try {
+            writeLine(data, attributes);
+            writeLine(subset, attributes);
+            String[] line = new String[attributes.length];
+            for (int row = 0; row < rows; row++) {
+                for (int i = 0; i < attributes.length; i++) {
+                    line[i] = getValue(permutations[i][sample(distributions[i], random)], 0);
+                }
+                writeLine(data, line);
+                if (row == 0 || random.nextDouble() < this.subset) {
+                    writeLine(subset, line);
+                }
+            }
+        } finally {
+            data.close();
+            subset.close();
+        }
+    }
+
+    /**
+     * Returns the names of the quasi-identifiers
+     *
+     * @return
+     */
+    public String[] getQuasiIdentifiers() {
+        String[] result = new String[heights.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = "q" + i;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the fan-out of all hierarchies
+     *
+     * @return
+     */
+    public int getFanout() {
+        return fanout;
+    }
+
+    /**
+     * Returns the heights of the hierarchies of the quasi-identifiers
+     *
+     * @return
+     */
+    public int[] getQuasiIdentifierHeights() {
+        return heights.clone();
+    }
+
+    /**
+     * Returns the number of rows
+     *
+     * @return
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the seed
+     *
+     * @return
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the name of the sensitive attribute
+     *
+     * @return
+     */
+    public String getSensitiveAttribute() {
+        return "s";
+    }
+
+    /**
+     * Returns the height of the hierarchy of the sensitive attribute
+     *
+     * @return
+     */
+    public int getSensitiveHeight() {
+        return sensitiveHeight;
+    }
+
+    /**
+     * Returns the exponent of the Zipf distribution of values
+     *
+     * @return
+     */
+    public double getSkew() {
+        return skew;
+    }
+
+    /**
+     * Returns the fraction of rows in the research subset
+     *
+     * @return
+     */
+    public double getSubsetFraction() {
+        return subset;
+    }
+
+    @Override
+    public String toString() {
+        return "rows=" + rows + ", heights=" + Arrays.toString(heights) + ", sensitiveHeight=" + sensitiveHeight +
+               ", fanout=" + fanout + ", skew=" + skew + ", subset=" + subset + ", seed=" + seed;
+    }
+
+    /**
+     * Returns the quasi-identifiers followed by the sensitive attribute
+     *
+     * @return
+     */
+    private String[] getAttributes() {
+        String[] result = Arrays.copyOf(getQuasiIdentifiers(), heights.length + 1);
+        result[heights.length] = getSensitiveAttribute();
+        return result;
+    }
+
+    /**
+     * Returns the cumulative Zipf distribution over the given number of values
+     *
+     * @param size
+     * @return
+     */
+    private double[] getDistribution(int size) {
+        double[] result = new double[size];
+        double sum = 0d;
+        for (int i = 0; i < size; i++) {
+            sum += 1d / Math.pow(i + 1, skew);
+            result[i] = sum;
+        }
+        for (int i = 0; i < size; i++) {
+            result[i] /= sum;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of distinct values of an attribute with the given height
+     *
+     * @param height
+     * @return
+     */
+    private int getDomainSize(int height) {
+        return (int) Math.pow(fanout, height - 1);
+    }
+
+    /**
+     * Returns the heights of the quasi-identifiers followed by the sensitive attribute
+     *
+     * @return
+     */
+    private int[] getHeights() {
+        int[] result = Arrays.copyOf(heights, heights.length + 1);
+        result[heights.length] = sensitiveHeight;
+        return result;
+    }
+
+    /**
+     * Returns a random permutation, which assigns values to ranks of the distribution,
+     * so that frequent values do not always share the same generalization
+     *
+     * @param size
+     * @param random
+     * @return
+     */
+    private int[] getPermutation(int size, Random random) {
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = result[i];
+            result[i] = result[j];
+            result[j] = temp;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the representation of the given value at the given level of generalization
+     *
+     * @param value
+     * @param level
+     * @return
+     */
+    private String getValue(int value, int level) {
+        if (level == 0) {
+            return String.valueOf(value);
+        } else {
+            return "L" + level + "_" + (value / (int) Math.pow(fanout, level));
+        }
+    }
+
+    /**
+     * Returns a buffered writer for the given file
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    private Writer getWriter(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory: " + parent);
+        }
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), UTF8), 1 << 16);
+    }
+
+    /**
+     * Draws a rank from the given cumulative distribution
+     *
+     * @param distribution
+     * @param random
+     * @return
+     */
+    private int sample(double[] distribution, Random random) {
+        int index = Arrays.binarySearch(distribution, random.nextDouble());
+        index = index >= 0 ? index : -index - 1;
+        return Math.min(index, distribution.length - 1);
+    }
+
+    /**
+     * Writes a hierarchy with the given height
+     *
+     * @param file
+     * @param height
+     * @throws IOException
+     */
+    private void writeHierarchy(File file, int height) throws IOException {
+        Writer writer = getWriter(file);
+        try {
+            String[] line = new String[height];
+            for (int value = 0; value < getDomainSize(height); value++) {
+                for (int level = 0; level < height - 1; level++) {
+                    line[level] = getValue(value, level);
+                }
+                line[height - 1] = "*";
+                writeLine(writer, line);
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Writes a line in the format used by {@link BenchmarkSetup}
+     *
+     * @param writer
+     * @param line
+     * @throws IOException
+     */
+    private void writeLine(Writer writer, String[] line) throws IOException {
+        for (int i = 0; i < line.length; i++) {
+            if (i > 0) writer.write(';');
+            writer.write(line[i]);
+        }
+        writer.write('\n');
+    }
+}
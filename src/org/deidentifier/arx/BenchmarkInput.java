@@ -0,0 +1,378 @@
+/*
+ * Source code of our CBMS 2014 paper "A benchmark of globally-optimal
+ *      methods for the de-identification of biomedical data"
+ *
+ * Copyright (C) 2014 Florian Kohlmayer, Fabian Prasser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.deidentifier.arx;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+
+import org.deidentifier.arx.AttributeType.Hierarchy;
+import org.deidentifier.arx.BenchmarkSetup.BenchmarkCriterion;
+import org.deidentifier.arx.BenchmarkSetup.BenchmarkDataset;
+import org.deidentifier.arx.framework.data.Dictionary;
+
+/**
+ * The dictionary-encoded input of a benchmark run: the data matrix, the dictionary,
+ * the generalization hierarchies and the research subset of a dataset. Instances
+ * are immutable and may be shared between threads.
+ *
+ * @author Fabian Prasser
+ */
+public class BenchmarkInput {
+
+    /** The dataset */
+    private final BenchmarkDataset        dataset;
+    /** The header */
+    private final String[]                header;
+    /** The encoded data */
+    private final int[][]                 data;
+    /** The dictionary, per column */
+    private final String[][]              dictionary;
+    /** The hierarchies of all quasi-identifiers and of the sensitive attribute */
+    private final Map<String, String[][]> hierarchies;
+    /** The indices of the rows in the research subset, null if there is none */
+    private final int[]                   subset;
+
+    /**
+     * Creates a new instance
+     *
+     * @param dataset
+     * @param header
+     * @param data
+     * @param dictionary
+     * @param hierarchies
+     * @param subset
+     */
+    BenchmarkInput(BenchmarkDataset dataset,
+                   String[] header,
+                   int[][] data,
+                   String[][] dictionary,
+                   Map<String, String[][]> hierarchies,
+                   int[] subset) {
+        this.dataset = dataset;
+        this.header = header;
+        this.data = data;
+        this.dictionary = dictionary;
+        this.hierarchies = hierarchies;
+        this.subset = subset;
+    }
+
+    /**
+     * Loads and encodes the given dataset from its CSV files. The data is read with a
+     * {@link BenchmarkReader}.
+     *
+     * @param dataset
+     * @return
+     * @throws IOException
+     */
+    public static BenchmarkInput create(BenchmarkDataset dataset) throws IOException {
+
+        // Encode data
+        BenchmarkReader reader = new BenchmarkReader(new File(BenchmarkSetup.getDataFile(dataset)), ';');
+
+        // Load hierarchies
+        Map<String, String[][]> hierarchies = new HashMap<String, String[][]>();
+        for (String attribute : getAttributes(dataset)) {
+            if (new File(BenchmarkSetup.getHierarchyFile(dataset, attribute)).exists()) {
+                hierarchies.put(attribute, BenchmarkSetup.getHierarchy(dataset, attribute).getHierarchy());
+            }
+        }
+
+        // Load subset
+        BenchmarkInput input = new BenchmarkInput(dataset,
+                                                  reader.getHeader(),
+                                                  reader.getData(),
+                                                  reader.getDictionary(),
+                                                  hierarchies,
+                                                  null);
+        if (new File(BenchmarkSetup.getSubsetFile(dataset)).exists()) {
+            int[] subset = DataSubset.create(input.toData(), Data.create(BenchmarkSetup.getSubsetFile(dataset), ';')).getArray();
+            input = new BenchmarkInput(dataset, input.header, input.data, input.dictionary, hierarchies, subset);
+        }
+        return input;
+    }
+
+    /**
+     * Returns the quasi-identifiers and the sensitive attribute of the dataset
+     *
+     * @param dataset
+     * @return
+     */
+    static String[] getAttributes(BenchmarkDataset dataset) {
+        String[] qis = BenchmarkSetup.getQuasiIdentifyingAttributes(dataset);
+        String[] attributes = new String[qis.length + 1];
+        System.arraycopy(qis, 0, attributes, 0, qis.length);
+        attributes[qis.length] = BenchmarkSetup.getSensitiveAttribute(dataset);
+        return attributes;
+    }
+
+    /**
+     * Returns the encoded data. The array must not be modified.
+     *
+     * @return
+     */
+    public int[][] getData() {
+        return data;
+    }
+
+    /**
+     * Returns the dataset
+     *
+     * @return
+     */
+    public BenchmarkDataset getDataset() {
+        return dataset;
+    }
+
+    /**
+     * Returns a data definition for the given criteria
+     *
+     * @param criteria
+     * @return
+     */
+    public DataDefinition getDefinition(BenchmarkCriterion[] criteria) {
+        return getDefinition(criteria, BenchmarkSetup.getQuasiIdentifyingAttributes(dataset).length);
+    }
+
+    /**
+     * Returns a data definition for the given criteria, in which only the given number
+     * of quasi-identifiers is used. The remaining quasi-identifiers are insensitive.
+     *
+     * @param criteria
+     * @param qis
+     * @return
+     */
+    public DataDefinition getDefinition(BenchmarkCriterion[] criteria, int qis) {
+        DataDefinition definition = Data.create(Collections.singletonList(header)).getDefinition();
+        String[] attributes = BenchmarkSetup.getQuasiIdentifyingAttributes(dataset);
+        for (int i = 0; i < attributes.length; i++) {
+            if (i < qis) {
+                definition.setAttributeType(attributes[i], getHierarchy(attributes[i]));
+            } else {
+                definition.setAttributeType(attributes[i], AttributeType.INSENSITIVE_ATTRIBUTE);
+            }
+        }
+        for (BenchmarkCriterion c : criteria) {
+            if (c == BenchmarkCriterion.L_DIVERSITY || c == BenchmarkCriterion.T_CLOSENESS) {
+                definition.setAttributeType(BenchmarkSetup.getSensitiveAttribute(dataset),
+                                            AttributeType.SENSITIVE_ATTRIBUTE);
+            }
+        }
+        return definition;
+    }
+
+    /**
+     * Returns a new dictionary. The DataManager registers the values of the
+     * hierarchies in the dictionary, so each run needs its own instance.
+     *
+     * @return
+     */
+    public Dictionary getDictionary() {
+        Dictionary result = new Dictionary(dictionary.length);
+        for (int column = 0; column < dictionary.length; column++) {
+            for (String value : dictionary[column]) {
+                result.register(column, value);
+            }
+        }
+        result.finalizeAll();
+        return result;
+    }
+
+    /**
+     * Returns the header
+     *
+     * @return
+     */
+    public String[] getHeader() {
+        return header;
+    }
+
+    /**
+     * Returns the hierarchy for the given attribute
+     *
+     * @param attribute
+     * @return
+     */
+    public Hierarchy getHierarchy(String attribute) {
+        String[][] hierarchy = hierarchies.get(attribute);
+        if (hierarchy == null) {
+            throw new IllegalArgumentException("No hierarchy for attribute: " + attribute);
+        }
+        return Hierarchy.create(hierarchy);
+    }
+
+    /**
+     * Returns the research subset. It is built from the indices of its rows, which have
+     * been computed when the input was created, without decoding the data.
+     *
+     * @return
+     */
+    public DataSubset getResearchSubset() {
+        if (subset == null) {
+            throw new IllegalStateException("No research subset for dataset: " + dataset);
+        }
+        Set<Integer> set = new HashSet<Integer>();
+        for (int row : subset) {
+            set.add(row);
+        }
+        return DataSubset.create(data.length, set);
+    }
+
+    /**
+     * Returns a version of this input with the given number of rows, relative to the
+     * number of rows of this input. Factors below 1 sample rows without replacement,
+     * factors above 1 replicate all rows and sample the remainder. Rows are shared
+     * with this input, the research subset is mapped accordingly. Sampling is deterministic.
+     *
+     * @param factor
+     * @return
+     */
+    public BenchmarkInput scale(double factor) {
+
+        if (factor <= 0d) {
+            throw new IllegalArgumentException("Invalid factor: " + factor);
+        } else if (factor == 1d) {
+            return this;
+        }
+
+        // Sample
+        int size = (int) Math.max(1L, Math.round(data.length * factor));
+        int replicated = (size / data.length) * data.length;
+        int[] sample = new int[data.length];
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = i;
+        }
+        Random random = new Random(0L);
+        for (int i = 0; i < size - replicated; i++) {
+            int j = i + random.nextInt(sample.length - i);
+            int temp = sample[i];
+            sample[i] = sample[j];
+            sample[j] = temp;
+        }
+        Arrays.sort(sample, 0, size - replicated);
+
+        // Map rows
+        int[] rows = new int[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = i < replicated ? i % data.length : sample[i - replicated];
+        }
+        int[][] scaled = new int[size][];
+        for (int i = 0; i < size; i++) {
+            scaled[i] = data[rows[i]];
+        }
+
+        // Map subset
+        int[] scaledSubset = null;
+        if (subset != null) {
+            boolean[] contained = new boolean[data.length];
+            for (int row : subset) {
+                contained[row] = true;
+            }
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (contained[rows[i]]) count++;
+            }
+            scaledSubset = new int[count];
+            count = 0;
+            for (int i = 0; i < size; i++) {
+                if (contained[rows[i]]) scaledSubset[count++] = i;
+            }
+        }
+
+        return new BenchmarkInput(dataset, header, scaled, dictionary, hierarchies, scaledSubset);
+    }
+
+    /**
+     * Returns the (decoded) data
+     *
+     * @return
+     */
+    public Data toData() {
+        return Data.create(new Iterator<String[]>() {
+
+            /** The next row, -1 is the header */
+            private int row = -1;
+
+            @Override
+            public boolean hasNext() {
+                return row < data.length;
+            }
+
+            @Override
+            public String[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String[] result;
+                if (row == -1) {
+                    result = header.clone();
+                } else {
+                    result = new String[header.length];
+                    for (int column = 0; column < result.length; column++) {
+                        result[column] = dictionary[column][data[row][column]];
+                    }
+                }
+                row++;
+                return result;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Not supported");
+            }
+        });
+    }
+
+    /**
+     * Returns the dictionary, per column
+     *
+     * @return
+     */
+    String[][] getMapping() {
+        return dictionary;
+    }
+
+    /**
+     * Returns the hierarchies
+     *
+     * @return
+     */
+    Map<String, String[][]> getHierarchies() {
+        return hierarchies;
+    }
+
+    /**
+     * Returns the indices of the rows in the research subset, or null
+     *
+     * @return
+     */
+    int[] getSubset() {
+        return subset;
+    }
+}
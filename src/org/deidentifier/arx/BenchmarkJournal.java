@@ -0,0 +1,182 @@
+/*
+ * Source code of our CBMS 2014 paper "A benchmark of globally-optimal
+ *      methods for the de-identification of biomedical data"
+ *
+ * Copyright (C) 2014 Florian Kohlmayer, Fabian Prasser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.deidentifier.arx;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An append-only journal of completed cells and the raw values of all their
+ * repetitions. The first line is a header with the settings of the run, e.g. the
+ * repetitions, the time limit and the tuned settings, as results recorded with other
+ * settings must not be mixed with new ones. A journal is only resumed if its header
+ * matches the current settings. Each entry is a line consisting of the serialized cell and the
+ * serialized result, separated by a tab. Values are identified by the names of
+ * their measures, see {@link BenchmarkResult#toString()}, so that journals remain
+ * valid when measures are added. Entries are synced to disk as soon as a cell has
+ * been executed, so that an interrupted sweep can be resumed by skipping all
+ * journaled cells. A trailing partial entry, e.g. caused by a crash while writing,
+ * is discarded when the journal is opened. Entries may be appended concurrently.
+ *
+ * @author Fabian Prasser
+ */
+public class BenchmarkJournal {
+
+    /** Charset */
+    private static final Charset                      UTF8    = Charset.forName("UTF-8");
+    /** Prefix of the header */
+    private static final String                       HEADER  = "#settings ";
+
+    /** The journaled results of each serialized cell, in the order in which they were written */
+    private final Map<String, List<BenchmarkResult>> entries = new HashMap<String, List<BenchmarkResult>>();
+    /** The number of journaled results */
+    private int                                       size;
+    /** The stream for appending entries */
+    private final FileOutputStream                    out;
+
+    /**
+     * Opens the journal stored in the given file, which is created if it does not exist
+     *
+     * @param file
+     * @param settings The settings of the run, which must match the header of an existing journal
+     * @throws IOException If the journal has been recorded with different settings
+     */
+    public BenchmarkJournal(File file, String settings) throws IOException {
+
+        // Check
+        if (settings.indexOf('\n') != -1 || settings.indexOf('\r') != -1) {
+            throw new IllegalArgumentException("Invalid settings: " + settings);
+        }
+
+        // Discard trailing partial entry
+        if (file.exists()) {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                long length = raf.length();
+                while (length > 0) {
+                    raf.seek(length - 1);
+                    if (raf.read() == '\n') {
+                        break;
+                    }
+                    length--;
+                }
+                raf.setLength(length);
+            } finally {
+                raf.close();
+            }
+        }
+
+        // Read entries
+        if (file.exists()) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8));
+            try {
+                String line = reader.readLine();
+                if (line != null && !line.equals(HEADER + settings)) {
+                    throw new IOException("Journal " + file + " has been recorded with different settings: " +
+                                          (line.startsWith(HEADER) ? line.substring(HEADER.length()) : "unknown") +
+                                          ", current settings: " + settings + ". Delete it to start from scratch.");
+                }
+                line = line != null ? reader.readLine() : null;
+                while (line != null) {
+                    int index = line.indexOf('\t');
+                    if (index == -1) {
+                        throw new IOException("Invalid journal entry: " + line);
+                    }
+                    String cell = line.substring(0, index);
+                    if (!entries.containsKey(cell)) {
+                        entries.put(cell, new ArrayList<BenchmarkResult>());
+                    }
+                    entries.get(cell).add(BenchmarkResult.parse(line.substring(index + 1)));
+                    size++;
+                    line = reader.readLine();
+                }
+            } finally {
+                reader.close();
+            }
+        } else if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+
+        // Open for appending
+        boolean empty = file.length() == 0L;
+        this.out = new FileOutputStream(file, true);
+        if (empty) {
+            out.write((HEADER + settings + "\n").getBytes(UTF8));
+            out.flush();
+            out.getFD().sync();
+        }
+    }
+
+    /**
+     * Appends an entry and syncs it to disk
+     *
+     * @param cell
+     * @param result
+     * @throws IOException
+     */
+    public synchronized void append(BenchmarkCell cell, BenchmarkResult result) throws IOException {
+        out.write((cell.serialize() + "\t" + result.toString() + "\n").getBytes(UTF8));
+        out.flush();
+        out.getFD().sync();
+    }
+
+    /**
+     * Closes the journal
+     *
+     * @throws IOException
+     */
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Returns the number of journaled results that have been read
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes and returns the first journaled result of the given cell, or null if there is none
+     *
+     * @param cell
+     * @return
+     */
+    public BenchmarkResult take(BenchmarkCell cell) {
+        List<BenchmarkResult> results = entries.get(cell.serialize());
+        if (results == null || results.isEmpty()) {
+            return null;
+        }
+        return results.remove(0);
+    }
+}
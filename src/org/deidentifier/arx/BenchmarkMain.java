@@ -22,78 +22,521 @@ package org.deidentifier.arx;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
+import org.deidentifier.arx.BenchmarkFork.ForkMode;
 import org.deidentifier.arx.BenchmarkSetup.BenchmarkAlgorithm;
 import org.deidentifier.arx.BenchmarkSetup.BenchmarkCriterion;
 import org.deidentifier.arx.BenchmarkSetup.BenchmarkDataset;
+import org.deidentifier.arx.BenchmarkSetup.BenchmarkMetric;
 
 import de.linearbits.subframe.Benchmark;
 import de.linearbits.subframe.analyzer.buffered.BufferedArithmeticMeanAnalyzer;
 import de.linearbits.subframe.analyzer.buffered.BufferedStandardDeviationAnalyzer;
 
 /**
- * Main benchmark class. Run with java -Xmx4G -XX:+UseConcMarkSweepGC -jar anonbench-0.1.jar
+ * Main benchmark class. Run with java -Xmx4G -XX:+UseG1GC -jar anonbench-0.1.jar, or use run.sh
+ * to select a different garbage collector
  * 
  * @author Fabian Prasser
  */
 public class BenchmarkMain {
 
+    /** The measures by name, see {@link #getMeasure(String)} */
+    private static final Map<String, Integer> MEASURES = new HashMap<String, Integer>();
+    /** The names of the measures, see {@link #getName(int)} */
+    private static final List<String>         NAMES    = new ArrayList<String>();
+
     /** Repetitions */
-    private static final int       REPETITIONS       = 3;
-    /** The benchmark instance */
-    private static final Benchmark BENCHMARK         = new Benchmark(new String[] { "Algorithm", "Dataset", "Criteria" });
-    /** Label for execution times */
-    public static final int        EXECUTION_TIME    = BENCHMARK.addMeasure("Execution time");
+    private static final int       REPETITIONS           = 3;
+    /** Maximal number of repetitions in adaptive mode */
+    private static final int       MAX_REPETITIONS       = 50;
+    /** Time budget per cell in adaptive mode, in seconds */
+    private static final int       BUDGET                = 600;
+    /** Default numbers of rows in row-scaling mode, relative to the datasets */
+    private static final String    ROWS                  = "0.01,0.1,1,10,100";
+    /** Label for execution times, i.e. wall-clock time */
+    public static final int        EXECUTION_TIME        = addMeasure("Execution time");
     /** Label for number of checks */
-    public static final int        NUMBER_OF_CHECKS  = BENCHMARK.addMeasure("Number of checks");
+    public static final int        NUMBER_OF_CHECKS      = addMeasure("Number of checks");
     /** Label for number of roll-ups */
-    public static final int        NUMBER_OF_ROLLUPS = BENCHMARK.addMeasure("Number of rollups");
+    public static final int        NUMBER_OF_ROLLUPS     = addMeasure("Number of rollups");
+    /** Label for the time spent loading data, hierarchies and the configuration */
+    public static final int        LOAD_TIME             = addMeasure("Load time");
+    /** Label for the time spent encoding data */
+    public static final int        ENCODE_TIME           = addMeasure("Encode time");
+    /** Label for the time spent building the lattice */
+    public static final int        LATTICE_TIME          = addMeasure("Lattice build time");
+    /** Label for the time spent initializing the checker and the algorithm */
+    public static final int        CHECKER_TIME          = addMeasure("Checker init time");
+    /** Label for the time spent initializing the metric */
+    public static final int        METRIC_TIME           = addMeasure("Metric init time");
+    /** Label for the number of repetitions performed */
+    public static final int        NUMBER_OF_REPETITIONS = addMeasure("Repetitions");
+    /** Label for the fraction of recorded runs that exceeded the time limit */
+    public static final int        TIMEOUTS              = addMeasure("Timeouts");
+    /** Label for the information loss of the best transformation found */
+    public static final int        INFORMATION_LOSS      = addMeasure("Information loss");
+    /** Label for the number of bytes allocated during traversal */
+    public static final int        ALLOCATED_BYTES       = addMeasure("Allocated bytes");
+    /** Label for the peak heap usage during traversal */
+    public static final int        PEAK_HEAP             = addMeasure("Peak heap");
+    /** Label for the heap retained after traversal */
+    public static final int        RETAINED_HEAP         = addMeasure("Retained heap");
+    /** Label for the number of garbage collections during traversal */
+    public static final int        GC_COUNT              = addMeasure("GC count");
+    /** Label for the time spent in garbage collection during traversal, in nanoseconds like all other times */
+    public static final int        GC_TIME               = addMeasure("GC time");
+    /** Label for the time spent in JIT compilation during traversal, in nanoseconds like all other times */
+    public static final int        JIT_TIME              = addMeasure("JIT time");
+    /** Label for the CPU time of the threads executing the traversal, including workers */
+    public static final int        THREAD_CPU_TIME       = addMeasure("Thread CPU time");
+    /** Label for the CPU time of the process during traversal */
+    public static final int        PROCESS_CPU_TIME      = addMeasure("Process CPU time");
+    /** Label for the number of transformations in the search space */
+    public static final int        LATTICE_SIZE          = addMeasure("Lattice size");
+    /** Label for the number of levels of the search space */
+    public static final int        LATTICE_LEVELS        = addMeasure("Lattice levels");
+    /** Label for the time spent checking transformations, including the evaluation of the metric */
+    public static final int        CHECK_TIME            = addMeasure("Check time");
+    /** Label for the time spent evaluating the metric */
+    public static final int        METRIC_EVAL_TIME      = addMeasure("Metric evaluation time");
+    /** Label for the size of the history, see {@link BenchmarkTuning} */
+    public static final int        HISTORY_SIZE          = addMeasure("History size");
+    /** Label for the maximal size of snapshots relative to the dataset */
+    public static final int        SNAPSHOT_DATASET      = addMeasure("Snapshot size dataset");
+    /** Label for the maximal size of snapshots relative to their predecessors */
+    public static final int        SNAPSHOT_SNAPSHOT     = addMeasure("Snapshot size snapshot");
+    /** Label for the number of threads used by the algorithm */
+    public static final int        THREADS               = addMeasure("Threads");
+
+    /**
+     * Returns the measure with the given name
+     * 
+     * @param name
+     * @return
+     */
+    public static int getMeasure(String name) {
+        Integer measure = MEASURES.get(name);
+        if (measure == null) {
+            throw new IllegalArgumentException("Invalid measure: " + name);
+        }
+        return measure;
+    }
+
+    /**
+     * Returns the name of the given measure
+     * 
+     * @param measure
+     * @return
+     */
+    public static String getName(int measure) {
+        return NAMES.get(measure);
+    }
 
-    static {
-        BENCHMARK.addAnalyzer(EXECUTION_TIME, new BufferedArithmeticMeanAnalyzer(REPETITIONS));
-        BENCHMARK.addAnalyzer(EXECUTION_TIME, new BufferedStandardDeviationAnalyzer(REPETITIONS));
-        BENCHMARK.addAnalyzer(NUMBER_OF_CHECKS, new BufferedArithmeticMeanAnalyzer(REPETITIONS));
-        BENCHMARK.addAnalyzer(NUMBER_OF_ROLLUPS, new BufferedArithmeticMeanAnalyzer(REPETITIONS));
+    /**
+     * Adds a measure, which is registered with each benchmark in the order of addition
+     * 
+     * @param name
+     * @return
+     */
+    private static int addMeasure(String name) {
+        int measure = NAMES.size();
+        NAMES.add(name);
+        MEASURES.put(name, measure);
+        return measure;
     }
 
     /**
-     * Main entry point
+     * Creates a benchmark with all measures and the given dimensions, see {@link BenchmarkCell#getRun(String...)}.
+     * Buffers are sized for the given number of runs per cell, i.e. the maximal number of repetitions times the
+     * number of forks.
+     * 
+     * @param dimensions
+     * @param runs
+     * @param forks
+     * @return
+     */
+    private static Benchmark getBenchmark(String[] dimensions, int runs, int forks) {
+        Benchmark benchmark = new Benchmark(BenchmarkCell.getHeader(dimensions));
+        for (String name : NAMES) {
+            benchmark.addMeasure(name);
+        }
+        benchmark.addAnalyzer(EXECUTION_TIME, new BufferedArithmeticMeanAnalyzer(runs));
+        benchmark.addAnalyzer(EXECUTION_TIME, new BufferedStandardDeviationAnalyzer(runs));
+        benchmark.addAnalyzer(NUMBER_OF_CHECKS, new BufferedArithmeticMeanAnalyzer(runs));
+        benchmark.addAnalyzer(NUMBER_OF_ROLLUPS, new BufferedArithmeticMeanAnalyzer(runs));
+        benchmark.addAnalyzer(NUMBER_OF_REPETITIONS, new BufferedArithmeticMeanAnalyzer(forks));
+        benchmark.addAnalyzer(TIMEOUTS, new BufferedArithmeticMeanAnalyzer(runs));
+        benchmark.addAnalyzer(INFORMATION_LOSS, new BufferedArithmeticMeanAnalyzer(runs));
+        benchmark.addAnalyzer(LATTICE_SIZE, new BufferedArithmeticMeanAnalyzer(runs));
+        benchmark.addAnalyzer(LATTICE_LEVELS, new BufferedArithmeticMeanAnalyzer(runs));
+        benchmark.addAnalyzer(HISTORY_SIZE, new BufferedArithmeticMeanAnalyzer(runs));
+        benchmark.addAnalyzer(SNAPSHOT_DATASET, new BufferedArithmeticMeanAnalyzer(runs));
+        benchmark.addAnalyzer(SNAPSHOT_SNAPSHOT, new BufferedArithmeticMeanAnalyzer(runs));
+        benchmark.addAnalyzer(THREADS, new BufferedArithmeticMeanAnalyzer(runs));
+        for (int measure : new int[] { LOAD_TIME, ENCODE_TIME, LATTICE_TIME, CHECKER_TIME, METRIC_TIME,
+                                       ALLOCATED_BYTES, PEAK_HEAP, RETAINED_HEAP, GC_COUNT, GC_TIME, JIT_TIME,
+                                       THREAD_CPU_TIME, PROCESS_CPU_TIME, CHECK_TIME, METRIC_EVAL_TIME }) {
+            benchmark.addAnalyzer(measure, new BufferedArithmeticMeanAnalyzer(runs));
+            benchmark.addAnalyzer(measure, new BufferedStandardDeviationAnalyzer(runs));
+        }
+        return benchmark;
+    }
+
+    /**
+     * Main entry point. Supports the following (optional) arguments:<br>
+     * -workers [number]: the number of cells of the benchmark matrix to execute concurrently<br>
+     * -threads [number]: the number of threads of each parallel algorithm, defaults to the number of
+     * available processors divided by the number of workers<br>
+     * -fork [cell|algorithm]: execute each cell or each algorithm in a freshly forked JVM<br>
+     * -forks [number]: the number of forked JVMs per cell, repetitions are performed in each fork<br>
+     * -jvm [arguments]: arguments for the forked JVMs, e.g. "-Xmx4G -XX:+UseG1GC", defaults to none<br>
+     * -repetitions [number]: the number of repetitions, or the minimal number in adaptive mode<br>
+     * -ci [width]: adaptive mode, repeat until the 95% confidence interval of the mean execution
+     * time is narrower than the given fraction of the mean (e.g. 0.05)<br>
+     * -max-repetitions [number]: the maximal number of repetitions in adaptive mode<br>
+     * -budget [seconds]: the time budget per cell in adaptive mode<br>
+     * -timeout [seconds]: the time limit per cell, which is shared by all repetitions of the cell. The warmup run has
+     * a time limit of its own. A run exceeding it is aborted and, if no run of the cell has completed, recorded with
+     * partial results<br>
+     * -synthetic: use synthetic datasets, which are generated if required, instead of the benchmark datasets<br>
+     * -scale rows: row-scaling mode, executes all algorithms with k-anonymity on sampled and replicated
+     * versions of the datasets and writes the results to results/results_rows.csv<br>
+     * -rows [factors]: comma-separated numbers of rows relative to the datasets in row-scaling mode<br>
+     * -scale qis: QI-scaling mode, executes all algorithms with k-anonymity on 1 to N quasi-identifiers
+     * of the datasets and writes the results to results/results_qis.csv<br>
+     * -scale parameters: parameter sweep, executes all algorithms with each criterion and each of the parameters
+     * declared in {@link BenchmarkSetup#getParameters(BenchmarkCriterion)} and writes the results to
+     * results/results_parameters.csv<br>
+     * -scale suppression: suppression sweep, executes all algorithms with all criteria and each of the suppression
+     * limits declared in {@link BenchmarkSetup#getSuppressionLimits()} and writes the results to results/results_suppression.csv<br>
+     * -scale metrics: executes all algorithms with k-anonymity and each metric and writes the results to
+     * results/results_metrics.csv<br>
+     * -tune: tunes the settings of the history for each algorithm and dataset of the benchmark matrix and
+     * writes them to results/tuning.properties, which is used by all later runs, see {@link BenchmarkTuning}
+     * 
+     * -output [file]: the file to which results are written, defaults to results/results.csv. Besides the algorithm,
+     * the dataset and the criteria, it has a column for each dimension in which the cells differ from the defaults,
+     * e.g. the suppression limits of a configuration file<br>
+     * -config [file]: read the benchmark matrix and options from a file, see {@link BenchmarkConfiguration}
      * 
      * @param args
      * @throws IOException
      */
     public static void main(String[] args) throws IOException {
 
-        BenchmarkDriver driver = new BenchmarkDriver(BENCHMARK);
+        // Configuration file
+        BenchmarkConfiguration configuration = null;
+        if (getOption(args, null, "-config", null) != null) {
+            configuration = new BenchmarkConfiguration(new File(getOption(args, null, "-config", null)));
+            configuration.register();
+        }
+
+        long timeLimit = Long.parseLong(getOption(args, configuration, "-timeout", "0")) * 1000L;
+        BenchmarkTuning tuning = new BenchmarkTuning(new File("results/tuning.properties"));
+        BenchmarkDriver driver = new BenchmarkDriver(new BenchmarkCache(new File("cache")), tuning, timeLimit);
+        int workers = Integer.parseInt(getOption(args, configuration, "-workers", "1"));
+        int threads = Integer.parseInt(getOption(args, configuration, "-threads",
+                                                 String.valueOf(Math.max(1, Runtime.getRuntime().availableProcessors() / workers))));
+        driver.setThreads(threads);
+        int min = Integer.parseInt(getOption(args, configuration, "-repetitions", String.valueOf(REPETITIONS)));
+        BenchmarkRepetitions repetitions = new BenchmarkRepetitions(min);
+        String width = getOption(args, configuration, "-ci", null);
+        if (width != null) {
+            repetitions = new BenchmarkRepetitions(min,
+                                                   Integer.parseInt(getOption(args, configuration, "-max-repetitions", String.valueOf(MAX_REPETITIONS))),
+                                                   Double.parseDouble(width),
+                                                   Long.parseLong(getOption(args, configuration, "-budget", String.valueOf(BUDGET))) * 1000L);
+        }
+        BenchmarkFork fork = null;
+        String mode = getOption(args, configuration, "-fork", null);
+        int forks = mode != null ? Integer.parseInt(getOption(args, configuration, "-forks", "1")) : 1;
+        if (mode != null) {
+            fork = new BenchmarkFork(ForkMode.valueOf(mode.toUpperCase()),
+                                     forks,
+                                     BenchmarkFork.parseJvmArgs(getOption(args, configuration, "-jvm", null)),
+                                     repetitions,
+                                     timeLimit,
+                                     threads,
+                                     configuration != null ? configuration.getFile() : null);
+        }
+
+        // Collect cells
+        BenchmarkDataset[] datasets = Arrays.asList(args).contains("-synthetic") ? BenchmarkSetup.getSyntheticDatasets()
+                                                                                   : BenchmarkSetup.getDatasets();
+        if (configuration != null && configuration.getDatasets() != null) {
+            datasets = configuration.getDatasets();
+        }
+        String scale = getOption(args, configuration, "-scale", null);
+        if (Arrays.asList(args).contains("-tune")) {
+
+            // Tune each pair of algorithm and dataset
+            Map<String, List<BenchmarkCell>> workloads = new LinkedHashMap<String, List<BenchmarkCell>>();
+            for (BenchmarkCell cell : configuration != null ? configuration.getCells(datasets) : getCells(datasets)) {
+                String key = cell.algorithm + "/" + cell.dataset.name();
+                if (!workloads.containsKey(key)) {
+                    workloads.put(key, new ArrayList<BenchmarkCell>());
+                }
+                workloads.get(key).add(cell);
+            }
+            for (Entry<String, List<BenchmarkCell>> entry : workloads.entrySet()) {
+                System.out.println("Tuning " + entry.getKey() + ": " + tuning.tune(driver, entry.getValue()));
+            }
+
+        } else {
+
+            // Collect the cells, the dimensions in which they vary and the output file. The benchmark
+            // matrix only has the dimensions in which the configured cells differ from the defaults.
+            List<BenchmarkCell> cells;
+            String[] dimensions;
+            File output;
+            if (scale == null) {
+                cells = configuration != null ? configuration.getCells(datasets) : getCells(datasets);
+                dimensions = BenchmarkCell.getDimensions(cells);
+                output = new File(getOption(args, configuration, "-output", "results/results.csv"));
+            } else if (scale.equals("rows")) {
+                cells = getRowScalingCells(datasets, getOption(args, configuration, "-rows", ROWS));
+                dimensions = new String[] { "Rows" };
+                output = new File("results/results_rows.csv");
+            } else if (scale.equals("qis")) {
+                cells = getQIScalingCells(datasets);
+                dimensions = new String[] { "QIs" };
+                output = new File("results/results_qis.csv");
+            } else if (scale.equals("parameters")) {
+                cells = getParameterCells(datasets);
+                dimensions = new String[] { "Parameters" };
+                output = new File("results/results_parameters.csv");
+            } else if (scale.equals("suppression")) {
+                cells = getSuppressionCells(datasets);
+                dimensions = new String[] { "Suppression" };
+                output = new File("results/results_suppression.csv");
+            } else if (scale.equals("metrics")) {
+                cells = getMetricCells(datasets);
+                dimensions = new String[] { "Metric" };
+                output = new File("results/results_metrics.csv");
+            } else {
+                throw new IllegalArgumentException("Invalid scaling mode: " + scale);
+            }
+
+            // Generate synthetic datasets before cells are executed, possibly in forked JVMs
+            for (BenchmarkCell cell : cells) {
+                BenchmarkSetup.generate(cell.dataset);
+            }
+
+            // Execute and write results incrementally
+            Benchmark benchmark = getBenchmark(dimensions, repetitions.getMax() * forks, forks);
+            new BenchmarkExecutor(benchmark, driver, workers, repetitions, fork).execute(cells, output, dimensions);
+        }
+    }
+
+    /**
+     * Returns the cells of the benchmark matrix
+     * 
+     * @param datasets
+     * @return
+     */
+    private static List<BenchmarkCell> getCells(BenchmarkDataset[] datasets) {
 
+        List<BenchmarkCell> cells = new ArrayList<BenchmarkCell>();
+        
         // For each algorithm
         for (BenchmarkAlgorithm algorithm : BenchmarkSetup.getAlgorithms()) {
             
             // For each dataset
-            for (BenchmarkDataset data : BenchmarkSetup.getDatasets()) {
+            for (BenchmarkDataset data : datasets) {
                 
                 // For each combination of criteria
                 for (BenchmarkCriterion[] criteria : BenchmarkSetup.getCriteria()) {
+                    cells.add(new BenchmarkCell(algorithm, data, criteria));
+                }
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Returns the cells for comparing metrics
+     * 
+     * @param datasets
+     * @return
+     */
+    private static List<BenchmarkCell> getMetricCells(BenchmarkDataset[] datasets) {
 
-                    // Warmup run
-                    driver.anonymize(data, criteria, algorithm, true);
+        List<BenchmarkCell> cells = new ArrayList<BenchmarkCell>();
+        BenchmarkCriterion[] criteria = new BenchmarkCriterion[] { BenchmarkCriterion.K_ANONYMITY };
+        
+        // For each algorithm
+        for (BenchmarkAlgorithm algorithm : BenchmarkSetup.getAlgorithms()) {
+            
+            // For each dataset
+            for (BenchmarkDataset data : datasets) {
+                
+                // For each metric
+                for (BenchmarkMetric metric : BenchmarkSetup.getMetrics()) {
+                    cells.add(new BenchmarkCell(algorithm, data,
+                                                criteria,
+                                                BenchmarkSetup.getDefaultParameters(criteria),
+                                                0d,
+                                                metric,
+                                                1d,
+                                                BenchmarkSetup.getQuasiIdentifyingAttributes(data).length));
+                }
+            }
+        }
+        return cells;
+    }
 
-                    // Print status info
-                    System.out.println("Running: " + algorithm.toString() + " / " + data.toString() + " / " + Arrays.toString(criteria));
+    /**
+     * Returns the cells for suppression sweeps
+     * 
+     * @param datasets
+     * @return
+     */
+    private static List<BenchmarkCell> getSuppressionCells(BenchmarkDataset[] datasets) {
 
-                    // Benchmark
-                    BENCHMARK.addRun(algorithm.toString(), data.toString(), Arrays.toString(criteria));
+        List<BenchmarkCell> cells = new ArrayList<BenchmarkCell>();
+        
+        // For each algorithm
+        for (BenchmarkAlgorithm algorithm : BenchmarkSetup.getAlgorithms()) {
+            
+            // For each dataset
+            for (BenchmarkDataset data : datasets) {
+                
+                // For each combination of criteria
+                for (BenchmarkCriterion[] criteria : BenchmarkSetup.getCriteria()) {
                     
-                    // Repeat
-                    for (int i = 0; i < REPETITIONS; i++) {
-                        driver.anonymize(data, criteria, algorithm, false);
+                    // For each suppression limit
+                    for (double suppression : BenchmarkSetup.getSuppressionLimits()) {
+                        cells.add(new BenchmarkCell(algorithm, data,
+                                                    criteria,
+                                                    BenchmarkSetup.getDefaultParameters(criteria),
+                                                    suppression,
+                                                    BenchmarkMetric.ENTROPY,
+                                                    1d,
+                                                    BenchmarkSetup.getQuasiIdentifyingAttributes(data).length));
                     }
+                }
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Returns the cells for parameter sweeps, which use one criterion at a time
+     * 
+     * @param datasets
+     * @return
+     */
+    private static List<BenchmarkCell> getParameterCells(BenchmarkDataset[] datasets) {
+
+        List<BenchmarkCell> cells = new ArrayList<BenchmarkCell>();
+        
+        // For each algorithm
+        for (BenchmarkAlgorithm algorithm : BenchmarkSetup.getAlgorithms()) {
+            
+            // For each dataset
+            for (BenchmarkDataset data : datasets) {
+                
+                // For each criterion
+                for (BenchmarkCriterion criterion : BenchmarkCriterion.values()) {
                     
-                    // Write results incrementally
-                    BENCHMARK.getResults().write(new File("results/results.csv"));
+                    // For each parameter
+                    for (double parameter : BenchmarkSetup.getParameters(criterion)) {
+                        cells.add(new BenchmarkCell(algorithm, data,
+                                                    new BenchmarkCriterion[] { criterion },
+                                                    new double[] { parameter },
+                                                    0d,
+                                                    BenchmarkMetric.ENTROPY,
+                                                    1d,
+                                                    BenchmarkSetup.getQuasiIdentifyingAttributes(data).length));
+                    }
+                }
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Returns the cells for QI-scaling mode. Subsets of quasi-identifiers are
+     * prefixes of the list of quasi-identifiers of each dataset.
+     * 
+     * @param datasets
+     * @return
+     */
+    private static List<BenchmarkCell> getQIScalingCells(BenchmarkDataset[] datasets) {
+
+        List<BenchmarkCell> cells = new ArrayList<BenchmarkCell>();
+        BenchmarkCriterion[] criteria = new BenchmarkCriterion[] { BenchmarkCriterion.K_ANONYMITY };
+        
+        // For each algorithm
+        for (BenchmarkAlgorithm algorithm : BenchmarkSetup.getAlgorithms()) {
+            
+            // For each dataset
+            for (BenchmarkDataset data : datasets) {
+                
+                // For each number of quasi-identifiers
+                for (int qis = 1; qis <= BenchmarkSetup.getQuasiIdentifyingAttributes(data).length; qis++) {
+                    cells.add(new BenchmarkCell(algorithm, data, criteria, 1d, qis));
                 }
             }
         }
+        return cells;
+    }
+
+    /**
+     * Returns the cells for row-scaling mode
+     * 
+     * @param datasets
+     * @param factors Comma-separated numbers of rows, relative to the datasets
+     * @return
+     */
+    private static List<BenchmarkCell> getRowScalingCells(BenchmarkDataset[] datasets, String factors) {
+
+        List<BenchmarkCell> cells = new ArrayList<BenchmarkCell>();
+        BenchmarkCriterion[] criteria = new BenchmarkCriterion[] { BenchmarkCriterion.K_ANONYMITY };
+        
+        // For each algorithm
+        for (BenchmarkAlgorithm algorithm : BenchmarkSetup.getAlgorithms()) {
+            
+            // For each dataset
+            for (BenchmarkDataset data : datasets) {
+                
+                // For each number of rows
+                for (String factor : factors.split(",")) {
+                    cells.add(new BenchmarkCell(algorithm, data, criteria, Double.parseDouble(factor.trim()),
+                                                BenchmarkSetup.getQuasiIdentifyingAttributes(data).length));
+                }
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Returns the value of the given command line option, of the corresponding option
+     * in the configuration file, or the default value
+     * 
+     * @param args
+     * @param configuration The configuration file, may be null
+     * @param name
+     * @param defaultValue
+     * @return
+     */
+    private static String getOption(String[] args, BenchmarkConfiguration configuration, String name, String defaultValue) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(name)) {
+                return args[i + 1];
+            }
+        }
+        if (configuration != null && configuration.getOption(name.substring(1)) != null) {
+            return configuration.getOption(name.substring(1));
+        }
+        return defaultValue;
     }
 }
@@ -0,0 +1,251 @@
+/*
+ * Source code of our CBMS 2014 paper "A benchmark of globally-optimal
+ *      methods for the de-identification of biomedical data"
+ *
+ * Copyright (C) 2014 Florian Kohlmayer, Fabian Prasser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.deidentifier.arx;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Monitors the resources consumed by the current thread and the JVM while
+ * traversing the search space, including CPU time, garbage collection and JIT compilation.
+ * An instance is used for a single run: call {@link #start()} before and
+ * {@link #stop(BenchmarkResult, long, long)} after the traversal. Measures that are
+ * not supported by the JVM are recorded as NaN.
+ *
+ * Note: heap usage, process CPU time, garbage collections and JIT compilation are properties
+ * of the whole JVM. They are only meaningful for runs that are not executed concurrently with
+ * other cells, otherwise they are recorded as NaN. All times are recorded in nanoseconds.
+ *
+ * @author Fabian Prasser
+ */
+public class BenchmarkMonitor {
+
+    /** The thread bean */
+    private final ThreadMXBean           threads  = ManagementFactory.getThreadMXBean();
+    /** The heap memory pools */
+    private final List<MemoryPoolMXBean> pools    = new ArrayList<MemoryPoolMXBean>();
+    /** The compilation bean, null if not available */
+    private final CompilationMXBean      compiler = ManagementFactory.getCompilationMXBean();
+    /** Whether the run is the only one executed in this JVM */
+    private final boolean                exclusive;
+    /** Bytes allocated by the current thread when the run was started */
+    private long                         allocated;
+    /** Number of garbage collections when the run was started */
+    private long                         collections;
+    /** Time spent in garbage collection when the run was started */
+    private long                         collectionTime;
+    /** Time spent in JIT compilation when the run was started */
+    private long                         compilationTime;
+    /** CPU time of the current thread when the run was started */
+    private long                         threadCpuTime;
+    /** CPU time of the process when the run was started */
+    private long                         processCpuTime;
+
+    /**
+     * Creates a new instance
+     *
+     * @param exclusive Whether the run is the only one executed in this JVM
+     */
+    public BenchmarkMonitor(boolean exclusive) {
+        this.exclusive = exclusive;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pools.add(pool);
+            }
+        }
+    }
+
+    /**
+     * Stores the heap retained after the run. Triggers a full garbage collection,
+     * all objects of the run must still be reachable when calling this method.
+     * If the run is not executed exclusively, NaN is stored without collecting garbage.
+     *
+     * @param result
+     */
+    public void addRetainedHeap(BenchmarkResult result) {
+        if (!exclusive) {
+            result.addValue(BenchmarkMain.RETAINED_HEAP, Double.NaN);
+            return;
+        }
+        System.gc();
+        result.addValue(BenchmarkMain.RETAINED_HEAP, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+    }
+
+    /**
+     * Starts monitoring a run
+     */
+    public void start() {
+        if (exclusive) {
+            for (MemoryPoolMXBean pool : pools) {
+                pool.resetPeakUsage();
+            }
+        }
+        allocated = getAllocatedBytes();
+        collections = getCollections();
+        collectionTime = getCollectionTime();
+        compilationTime = getCompilationTime();
+        processCpuTime = getProcessCpuTime();
+        threadCpuTime = getThreadCpuTime();
+    }
+
+    /**
+     * Stops monitoring a run and stores the measurements in the given result. The CPU time
+     * and the bytes allocated by worker threads of the run are added to the measurements
+     * of the current thread.
+     *
+     * @param result
+     * @param workerCpuTime CPU time of the worker threads in nanoseconds, -1 if not supported
+     * @param workerAllocatedBytes Bytes allocated by the worker threads, -1 if not supported
+     */
+    public void stop(BenchmarkResult result, long workerCpuTime, long workerAllocatedBytes) {
+        long threadCpuTime = getThreadCpuTime();
+        long processCpuTime = exclusive ? getProcessCpuTime() : -1L;
+        long allocated = getAllocatedBytes();
+        long compilationTime = exclusive ? getCompilationTime() : -1L;
+        long collections = exclusive ? getCollections() : -1L;
+        long collectionTime = exclusive ? getCollectionTime() : -1L;
+        result.addValue(BenchmarkMain.THREAD_CPU_TIME, getDelta(this.threadCpuTime, threadCpuTime, workerCpuTime));
+        result.addValue(BenchmarkMain.PROCESS_CPU_TIME, getDelta(this.processCpuTime, processCpuTime, 0L));
+        result.addValue(BenchmarkMain.ALLOCATED_BYTES, getDelta(this.allocated, allocated, workerAllocatedBytes));
+        result.addValue(BenchmarkMain.PEAK_HEAP, exclusive ? getPeakHeap() : Double.NaN);
+        result.addValue(BenchmarkMain.GC_COUNT, getDelta(this.collections, collections, 0L));
+        result.addValue(BenchmarkMain.GC_TIME, getDelta(this.collectionTime, collectionTime, 0L) * 1000000d);
+        result.addValue(BenchmarkMain.JIT_TIME, getDelta(this.compilationTime, compilationTime, 0L) * 1000000d);
+    }
+
+    /**
+     * Returns the number of bytes allocated by the current thread, or -1 if this is not supported by the JVM
+     *
+     * @return
+     */
+    private long getAllocatedBytes() {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threads;
+            if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1L;
+    }
+
+    /**
+     * Returns the difference between the given values plus the given offset, or NaN
+     * if any of them is not supported, i.e. -1
+     *
+     * @param start
+     * @param end
+     * @param offset
+     * @return
+     */
+    private double getDelta(long start, long end, long offset) {
+        if (start == -1L || end == -1L || offset == -1L) {
+            return Double.NaN;
+        }
+        return end - start + offset;
+    }
+
+    /**
+     * Returns the number of garbage collections performed by all collectors
+     *
+     * @return
+     */
+    private long getCollections() {
+        long count = 0L;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0L, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * Returns the accumulated collection time of all collectors in milliseconds. For
+     * concurrent collectors, this includes phases that do not pause the application.
+     *
+     * @return
+     */
+    private long getCollectionTime() {
+        long time = 0L;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0L, collector.getCollectionTime());
+        }
+        return time;
+    }
+
+    /**
+     * Returns the accumulated time spent in JIT compilation in milliseconds, or -1
+     * if this is not supported by the JVM
+     *
+     * @return
+     */
+    private long getCompilationTime() {
+        if (compiler != null && compiler.isCompilationTimeMonitoringSupported()) {
+            return compiler.getTotalCompilationTime();
+        }
+        return -1L;
+    }
+
+    /**
+     * Returns the CPU time consumed by all threads of this JVM in nanoseconds, or -1
+     * if this is not supported by the JVM
+     *
+     * @return
+     */
+    private long getProcessCpuTime() {
+        Object bean = ManagementFactory.getOperatingSystemMXBean();
+        if (bean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) bean).getProcessCpuTime();
+        }
+        return -1L;
+    }
+
+    /**
+     * Returns the CPU time consumed by the current thread in nanoseconds, or -1
+     * if this is not supported by the JVM
+     *
+     * @return
+     */
+    private long getThreadCpuTime() {
+        if (threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled()) {
+            return threads.getCurrentThreadCpuTime();
+        }
+        return -1L;
+    }
+
+    /**
+     * Returns the peak usage of the heap since the run was started. This is the sum
+     * of the peaks of all pools and thus an upper bound of the actual peak.
+     *
+     * @return
+     */
+    private long getPeakHeap() {
+        long peak = 0L;
+        for (MemoryPoolMXBean pool : pools) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,533 @@
+/*
+ * Source code of our CBMS 2014 paper "A benchmark of globally-optimal
+ *      methods for the de-identification of biomedical data"
+ *
+ * Copyright (C) 2014 Florian Kohlmayer, Fabian Prasser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.deidentifier.arx;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads and dictionary-encodes a CSV file with a header row, without the detour
+ * via {@link Data}. The file is memory-mapped and split into chunks at line
+ * boundaries, which are tokenized and encoded in parallel. Values are compared
+ * as bytes, Strings are only created once for each distinct value of a column.
+ * The resulting codes are identical to the codes obtained by encoding the rows
+ * sequentially, i.e. each column is encoded in the order of first appearance.
+ *
+ * Fields must not be quoted. Empty lines are ignored, line endings may be "\n"
+ * or "\r\n", the charset is UTF-8.
+ *
+ * @author Fabian Prasser
+ */
+public class BenchmarkReader {
+
+    /**
+     * A dictionary of byte sequences, implemented as an open-addressing hash table
+     */
+    private static class ByteDictionary {
+
+        /** The table, containing codes + 1 */
+        private int[]    table  = new int[64];
+        /** The values */
+        private byte[][] values = new byte[16][];
+        /** The hashes of the values */
+        private int[]    hashes = new int[16];
+        /** The number of values */
+        private int      size;
+
+        /**
+         * Returns the code of the given value, which is registered if required
+         *
+         * @param buffer
+         * @param offset
+         * @param length
+         * @param hash The hash code, see {@link BenchmarkReader#hash(int, byte)}
+         * @return
+         */
+        int register(ByteBuffer buffer, int offset, int length, int hash) {
+
+            // Probe
+            int mask = table.length - 1;
+            int slot = mix(hash) & mask;
+            while (table[slot] != 0) {
+                int code = table[slot] - 1;
+                if (hashes[code] == hash && equals(values[code], buffer, offset, length)) {
+                    return code;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            // Add
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+                hashes = Arrays.copyOf(hashes, size * 2);
+            }
+            byte[] value = new byte[length];
+            for (int i = 0; i < length; i++) {
+                value[i] = buffer.get(offset + i);
+            }
+            values[size] = value;
+            hashes[size] = hash;
+            table[slot] = ++size;
+
+            // Grow
+            if (size * 2 > table.length) {
+                int[] grown = new int[table.length * 2];
+                mask = grown.length - 1;
+                for (int code = 0; code < size; code++) {
+                    slot = mix(hashes[code]) & mask;
+                    while (grown[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    grown[slot] = code + 1;
+                }
+                table = grown;
+            }
+            return size - 1;
+        }
+
+        /**
+         * Compares a value with a sequence of bytes
+         *
+         * @param value
+         * @param buffer
+         * @param offset
+         * @param length
+         * @return
+         */
+        private boolean equals(byte[] value, ByteBuffer buffer, int offset, int length) {
+            if (value.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (value[i] != buffer.get(offset + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Spreads the bits of a hash code
+         *
+         * @param hash
+         * @return
+         */
+        private int mix(int hash) {
+            hash *= 0x9E3779B9;
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    /**
+     * A chunk of the file, consisting of complete lines
+     */
+    private static class Chunk {
+
+        /** The offset of the first byte */
+        final long             start;
+        /** The offset after the last byte */
+        final long             end;
+        /** The dictionaries of this chunk, per column */
+        final ByteDictionary[] dictionaries;
+        /** The local codes, row by row */
+        int[]                  codes = new int[1024];
+        /** The number of rows */
+        int                    rows;
+        /** The index of the first row in the data */
+        int                    offset;
+
+        /**
+         * Creates a new chunk
+         *
+         * @param start
+         * @param end
+         * @param columns
+         */
+        Chunk(long start, long end, int columns) {
+            this.start = start;
+            this.end = end;
+            this.dictionaries = new ByteDictionary[columns];
+            for (int i = 0; i < columns; i++) {
+                dictionaries[i] = new ByteDictionary();
+            }
+        }
+    }
+
+    /** Default nominal size of chunks */
+    private static final long    CHUNK = 1L << 26;
+    /** Charset */
+    private static final Charset UTF8  = Charset.forName("UTF-8");
+
+    /** The header */
+    private String[]             header;
+    /** The encoded data */
+    private int[][]              data;
+    /** The dictionary, per column */
+    private String[][]           dictionary;
+
+    /**
+     * Reads and encodes the given file
+     *
+     * @param file
+     * @param separator
+     * @throws IOException
+     */
+    public BenchmarkReader(File file, char separator) throws IOException {
+        this(file, separator, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Reads and encodes the given file with the given number of threads
+     *
+     * @param file
+     * @param separator
+     * @param threads
+     * @throws IOException
+     */
+    public BenchmarkReader(File file, char separator, int threads) throws IOException {
+        this(file, separator, threads, CHUNK);
+    }
+
+    /**
+     * Reads and encodes the given file with the given number of threads, splitting
+     * it into chunks of the given nominal size in bytes
+     *
+     * @param file
+     * @param separator
+     * @param threads
+     * @param chunk
+     * @throws IOException
+     */
+    public BenchmarkReader(File file, char separator, int threads, long chunk) throws IOException {
+        if (separator > 0x7F) {
+            throw new IllegalArgumentException("Invalid separator: " + separator);
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+        if (chunk < 1) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunk);
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            read(raf.getChannel(), (byte) separator, chunk, pool);
+        } finally {
+            pool.shutdownNow();
+            raf.close();
+        }
+    }
+
+    /**
+     * Updates a hash code with the given byte
+     *
+     * @param hash
+     * @param value
+     * @return
+     */
+    private static int hash(int hash, byte value) {
+        return 31 * hash + value;
+    }
+
+    /**
+     * Returns the encoded data
+     *
+     * @return
+     */
+    public int[][] getData() {
+        return data;
+    }
+
+    /**
+     * Returns the dictionary, per column
+     *
+     * @return
+     */
+    public String[][] getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Returns the header
+     *
+     * @return
+     */
+    public String[] getHeader() {
+        return header;
+    }
+
+    /**
+     * Returns the offset after the first line feed at or after the given position,
+     * or the size of the file if there is none
+     *
+     * @param channel
+     * @param position
+     * @return
+     * @throws IOException
+     */
+    private long getLineEnd(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        long size = channel.size();
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Executes the given tasks and waits for their completion
+     *
+     * @param pool
+     * @param tasks
+     * @throws IOException
+     */
+    private void invoke(ExecutorService pool, List<Callable<Void>> tasks) throws IOException {
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (Callable<Void> task : tasks) {
+            futures.add(pool.submit(task));
+        }
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while reading data", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new RuntimeException(cause);
+            }
+        }
+    }
+
+    /**
+     * Reads and encodes the file
+     *
+     * @param channel
+     * @param separator
+     * @param chunkSize
+     * @param pool
+     * @throws IOException
+     */
+    private void read(final FileChannel channel, final byte separator, long chunkSize, ExecutorService pool) throws IOException {
+
+        // Read header
+        long size = channel.size();
+        long start = getLineEnd(channel, 0);
+        if (start == 0 || start > Integer.MAX_VALUE) {
+            throw new IOException("Invalid header");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) start);
+        channel.read(buffer, 0);
+        String line = new String(buffer.array(), UTF8);
+        line = line.endsWith("\n") ? line.substring(0, line.length() - 1) : line;
+        line = line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+        header = split(line, (char) separator);
+        final int columns = header.length;
+
+        // Split into chunks at line boundaries
+        List<Chunk> chunks = new ArrayList<Chunk>();
+        while (start < size) {
+            long end = Math.min(size, getLineEnd(channel, Math.min(size, start + chunkSize) - 1));
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IOException("Line too long at offset: " + start);
+            }
+            chunks.add(new Chunk(start, end, columns));
+            start = end;
+        }
+
+        // Tokenize and encode each chunk with local dictionaries
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (final Chunk chunk : chunks) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    tokenize(channel, chunk, separator);
+                    return null;
+                }
+            });
+        }
+        invoke(pool, tasks);
+
+        // Merge dictionaries in the order of the chunks
+        final int[][][] mappings = new int[chunks.size()][columns][];
+        List<List<byte[]>> values = new ArrayList<List<byte[]>>();
+        int rows = 0;
+        for (int column = 0; column < columns; column++) {
+            ByteDictionary global = new ByteDictionary();
+            for (int i = 0; i < chunks.size(); i++) {
+                ByteDictionary local = chunks.get(i).dictionaries[column];
+                int[] mapping = new int[local.size];
+                for (int code = 0; code < local.size; code++) {
+                    byte[] value = local.values[code];
+                    mapping[code] = global.register(ByteBuffer.wrap(value), 0, value.length, local.hashes[code]);
+                }
+                mappings[i][column] = mapping;
+            }
+            values.add(Arrays.asList(global.values).subList(0, global.size));
+        }
+        for (Chunk chunk : chunks) {
+            chunk.offset = rows;
+            rows += chunk.rows;
+        }
+
+        // Decode distinct values
+        dictionary = new String[columns][];
+        for (int column = 0; column < columns; column++) {
+            List<byte[]> list = values.get(column);
+            dictionary[column] = new String[list.size()];
+            for (int code = 0; code < list.size(); code++) {
+                dictionary[column][code] = new String(list.get(code), UTF8);
+            }
+        }
+
+        // Map local codes to global codes
+        data = new int[rows][];
+        tasks.clear();
+        for (int i = 0; i < chunks.size(); i++) {
+            final Chunk chunk = chunks.get(i);
+            final int[][] mapping = mappings[i];
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int row = 0; row < chunk.rows; row++) {
+                        int[] tuple = new int[columns];
+                        for (int column = 0; column < columns; column++) {
+                            tuple[column] = mapping[column][chunk.codes[row * columns + column]];
+                        }
+                        data[chunk.offset + row] = tuple;
+                    }
+                    chunk.codes = null;
+                    return null;
+                }
+            });
+        }
+        invoke(pool, tasks);
+    }
+
+    /**
+     * Splits a line into fields
+     *
+     * @param line
+     * @param separator
+     * @return
+     */
+    private String[] split(String line, char separator) {
+        List<String> fields = new ArrayList<String>();
+        int start = 0;
+        for (int i = 0; i <= line.length(); i++) {
+            if (i == line.length() || line.charAt(i) == separator) {
+                fields.add(line.substring(start, i));
+                start = i + 1;
+            }
+        }
+        return fields.toArray(new String[fields.size()]);
+    }
+
+    /**
+     * Tokenizes and encodes the lines of a chunk
+     *
+     * @param channel
+     * @param chunk
+     * @param separator
+     * @throws IOException
+     */
+    private void tokenize(FileChannel channel, Chunk chunk, byte separator) throws IOException {
+
+        ByteBuffer buffer = channel.map(MapMode.READ_ONLY, chunk.start, chunk.end - chunk.start);
+        int columns = chunk.dictionaries.length;
+        int limit = buffer.limit();
+        int position = 0;
+        while (position < limit) {
+
+            // Find end of line
+            int end = position;
+            while (end < limit && buffer.get(end) != '\n') {
+                end++;
+            }
+            int next = end + 1;
+            if (end > position && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+
+            // Ignore empty lines
+            if (end == position) {
+                position = next;
+                continue;
+            }
+
+            // Make sure that there is enough space
+            int offset = chunk.rows * columns;
+            if (offset + columns > chunk.codes.length) {
+                chunk.codes = Arrays.copyOf(chunk.codes, Math.max(chunk.codes.length * 2, offset + columns));
+            }
+
+            // Encode fields
+            int column = 0;
+            int start = position;
+            int hash = 0;
+            for (int i = position; i <= end; i++) {
+                byte value = i < end ? buffer.get(i) : separator;
+                if (value == separator) {
+                    if (column == columns) {
+                        throw new IOException("Invalid number of fields at offset: " + (chunk.start + position));
+                    }
+                    chunk.codes[offset + column] = chunk.dictionaries[column].register(buffer, start, i - start, hash);
+                    column++;
+                    start = i + 1;
+                    hash = 0;
+                } else {
+                    hash = hash(hash, value);
+                }
+            }
+            if (column != columns) {
+                throw new IOException("Invalid number of fields at offset: " + (chunk.start + position));
+            }
+            chunk.rows++;
+            position = next;
+        }
+    }
+}
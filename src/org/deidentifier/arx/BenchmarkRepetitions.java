@@ -0,0 +1,166 @@
+/*
+ * Source code of our CBMS 2014 paper "A benchmark of globally-optimal
+ *      methods for the de-identification of biomedical data"
+ *
+ * Copyright (C) 2014 Florian Kohlmayer, Fabian Prasser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.deidentifier.arx;
+
+/**
+ * Determines how often a cell of the benchmark matrix is repeated. A cell is
+ * repeated at least <code>min</code> and at most <code>max</code> times. In
+ * between, repetitions stop as soon as the width of the 95% confidence interval
+ * of the mean execution time, relative to the mean, is below the given target,
+ * or when the next repetition would exceed the time budget of the cell.
+ *
+ * @author Fabian Prasser
+ */
+public class BenchmarkRepetitions {
+
+    /** Quantiles of Student's t-distribution (0.975) for 1 to 30 degrees of freedom */
+    private static final double[] T_QUANTILES = { 12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+                                                  2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+                                                  2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042 };
+    /** Quantile of the normal distribution (0.975), used for more than 30 degrees of freedom */
+    private static final double   Z_QUANTILE  = 1.960;
+
+    /** Minimal number of repetitions */
+    private final int             min;
+    /** Maximal number of repetitions */
+    private final int             max;
+    /** Target relative width of the confidence interval, 0 if repetitions are fixed */
+    private final double          width;
+    /** Time budget per cell in milliseconds, 0 if unlimited */
+    private final long            budget;
+
+    /**
+     * Creates a fixed number of repetitions
+     *
+     * @param repetitions
+     */
+    public BenchmarkRepetitions(int repetitions) {
+        this(repetitions, repetitions, 0d, 0L);
+    }
+
+    /**
+     * Creates an adaptive number of repetitions
+     *
+     * @param min Minimal number of repetitions
+     * @param max Maximal number of repetitions
+     * @param width Target width of the confidence interval relative to the mean, e.g. 0.05
+     * @param budget Time budget per cell in milliseconds, 0 if unlimited
+     */
+    public BenchmarkRepetitions(int min, int max, double width, long budget) {
+        if (min < 1 || max < min) {
+            throw new IllegalArgumentException("Invalid number of repetitions: [" + min + ", " + max + "]");
+        }
+        if (width < 0d || budget < 0L) {
+            throw new IllegalArgumentException("Invalid width or budget");
+        }
+        this.min = min;
+        this.max = max;
+        this.width = width;
+        this.budget = budget;
+    }
+
+    /**
+     * Parses an instance from the representation returned by {@link #serialize()}
+     *
+     * @param string
+     * @return
+     */
+    public static BenchmarkRepetitions deserialize(String string) {
+        String[] fields = string.split("/");
+        if (fields.length != 4) {
+            throw new IllegalArgumentException("Invalid repetitions: " + string);
+        }
+        return new BenchmarkRepetitions(Integer.parseInt(fields[0]),
+                                        Integer.parseInt(fields[1]),
+                                        Double.parseDouble(fields[2]),
+                                        Long.parseLong(fields[3]));
+    }
+
+    /**
+     * Returns the maximal number of repetitions, e.g. for sizing buffers
+     *
+     * @return
+     */
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * Returns whether another repetition should be performed
+     *
+     * @param times The execution times of all repetitions performed so far
+     * @param elapsed Time elapsed since the first repetition in milliseconds
+     * @return
+     */
+    public boolean isRepeat(double[] times, long elapsed) {
+
+        // Bounds
+        int count = times.length;
+        if (count < min) {
+            return true;
+        } else if (count >= max) {
+            return false;
+        }
+
+        // Budget: don't start a repetition that is expected to exceed it
+        if (budget > 0L && (double) elapsed + (double) elapsed / count > budget) {
+            return false;
+        }
+
+        // Confidence interval
+        if (width == 0d) {
+            return false;
+        } else if (count < 2) {
+            return true;
+        }
+        double mean = 0d;
+        for (double time : times) {
+            mean += time;
+        }
+        mean /= count;
+        double variance = 0d;
+        for (double time : times) {
+            variance += (time - mean) * (time - mean);
+        }
+        variance /= (count - 1);
+        double quantile = count - 1 <= T_QUANTILES.length ? T_QUANTILES[count - 2] : Z_QUANTILE;
+        double interval = 2d * quantile * Math.sqrt(variance / count);
+        return mean > 0d && interval / mean > width;
+    }
+
+    /**
+     * Returns a representation of this instance that can be passed to another JVM
+     *
+     * @return
+     */
+    public String serialize() {
+        return min + "/" + max + "/" + width + "/" + budget;
+    }
+
+    @Override
+    public String toString() {
+        if (width == 0d) {
+            return String.valueOf(min);
+        } else {
+            return "[" + min + ", " + max + "], width=" + width + ", budget=" + budget + "ms";
+        }
+    }
+}
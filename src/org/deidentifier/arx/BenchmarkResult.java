@@ -0,0 +1,130 @@
+/*
+ * Source code of our CBMS 2014 paper "A benchmark of globally-optimal
+ *      methods for the de-identification of biomedical data"
+ *
+ * Copyright (C) 2014 Florian Kohlmayer, Fabian Prasser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.deidentifier.arx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.linearbits.subframe.Benchmark;
+
+/**
+ * Buffers the measurements obtained for one cell of the benchmark matrix,
+ * until they are committed to the (shared) benchmark instance. This allows
+ * cells to be executed concurrently.
+ *
+ * @author Fabian Prasser
+ */
+public class BenchmarkResult {
+
+    /** The measures */
+    private final List<Integer> measures = new ArrayList<Integer>();
+    /** The values */
+    private final List<Double>  values   = new ArrayList<Double>();
+
+    /**
+     * Adds a value
+     *
+     * @param measure
+     * @param value
+     */
+    public void addValue(int measure, double value) {
+        measures.add(measure);
+        values.add(value);
+    }
+
+    /**
+     * Adds all values from the given result
+     *
+     * @param other
+     */
+    public void addAll(BenchmarkResult other) {
+        measures.addAll(other.measures);
+        values.addAll(other.values);
+    }
+
+    /**
+     * Returns all values of the given measure, in the order in which they were added
+     *
+     * @param measure
+     * @return
+     */
+    public double[] getValues(int measure) {
+        int count = 0;
+        for (int i = 0; i < measures.size(); i++) {
+            if (measures.get(i) == measure) count++;
+        }
+        double[] result = new double[count];
+        count = 0;
+        for (int i = 0; i < measures.size(); i++) {
+            if (measures.get(i) == measure) result[count++] = values.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Adds a new run to the given benchmark and stores all buffered values
+     *
+     * @param benchmark
+     * @param run
+     */
+    public void commit(Benchmark benchmark, String... run) {
+        synchronized (benchmark) {
+            benchmark.addRun(run);
+            for (int i = 0; i < measures.size(); i++) {
+                int measure = measures.get(i);
+                double value = values.get(i);
+                benchmark.addValue(measure, value);
+            }
+        }
+    }
+
+    /**
+     * Parses a result from its string representation, in which measures are identified by name
+     *
+     * @param string
+     * @return
+     */
+    public static BenchmarkResult parse(String string) {
+        BenchmarkResult result = new BenchmarkResult();
+        if (string.isEmpty()) {
+            return result;
+        }
+        for (String entry : string.split(";")) {
+            int index = entry.indexOf('=');
+            if (index == -1) {
+                throw new IllegalArgumentException("Invalid entry: " + entry);
+            }
+            result.addValue(BenchmarkMain.getMeasure(entry.substring(0, index)),
+                            Double.parseDouble(entry.substring(index + 1)));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < measures.size(); i++) {
+            if (i > 0) builder.append(";");
+            builder.append(BenchmarkMain.getName(measures.get(i))).append("=").append(values.get(i));
+        }
+        return builder.toString();
+    }
+}
@@ -20,7 +20,17 @@
 
 package org.deidentifier.arx;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.deidentifier.arx.AttributeType.Hierarchy;
 import org.deidentifier.arx.criteria.DPresence;
@@ -35,6 +45,49 @@ import org.deidentifier.arx.metric.Metric;
  */
 public class BenchmarkSetup {
 
+    /** Synthetic datasets that have been generated or checked in this JVM */
+    private static final Set<String>                              GENERATED   = new HashSet<String>();
+
+    /** Datasets whose files or attributes have been redefined */
+    private static final Map<BenchmarkDataset, DatasetDefinition> DEFINITIONS = new ConcurrentHashMap<BenchmarkDataset, DatasetDefinition>();
+
+    /** Synthetic datasets whose generators have been redefined */
+    private static final Map<BenchmarkDataset, BenchmarkGenerator> GENERATORS = new ConcurrentHashMap<BenchmarkDataset, BenchmarkGenerator>();
+
+    /**
+     * Redefines the files and attributes of a dataset, e.g. in a configuration file.
+     * Fields that are null retain the defaults.
+     */
+    public static class DatasetDefinition {
+
+        /** The data file */
+        public final String   data;
+        /** The prefix of the hierarchy files, which is followed by the attribute and ".csv" */
+        public final String   hierarchies;
+        /** The file containing the research subset */
+        public final String   subset;
+        /** The quasi-identifiers */
+        public final String[] qis;
+        /** The sensitive attribute */
+        public final String   sensitive;
+
+        /**
+         * Creates a new definition
+         * @param data
+         * @param hierarchies
+         * @param subset
+         * @param qis
+         * @param sensitive
+         */
+        public DatasetDefinition(String data, String hierarchies, String subset, String[] qis, String sensitive) {
+            this.data = data;
+            this.hierarchies = hierarchies;
+            this.subset = subset;
+            this.qis = qis;
+            this.sensitive = sensitive;
+        }
+    }
+
     public static enum BenchmarkAlgorithm {
         BFS {
             @Override
@@ -66,6 +119,30 @@ public class BenchmarkSetup {
                 return "Incognito";
             }
         },
+        PARALLEL_BFS {
+            @Override
+            public String toString() {
+                return "Parallel BFS";
+            }
+        },
+        PARALLEL_FLASH {
+            @Override
+            public String toString() {
+                return "Parallel Flash";
+            }
+        },
+        PARALLEL_OLA {
+            @Override
+            public String toString() {
+                return "Parallel OLA";
+            }
+        },
+        PARALLEL_INCOGNITO {
+            @Override
+            public String toString() {
+                return "Parallel Incognito";
+            }
+        },
     }
 
     public static enum BenchmarkCriterion {
@@ -95,6 +172,51 @@ public class BenchmarkSetup {
         },
     }
 
+    public static enum BenchmarkMetric {
+        HEIGHT {
+            @Override
+            public String toString() {
+                return "Height";
+            }
+        },
+        PRECISION {
+            @Override
+            public String toString() {
+                return "Precision";
+            }
+        },
+        DM {
+            @Override
+            public String toString() {
+                return "DM";
+            }
+        },
+        DM_STAR {
+            @Override
+            public String toString() {
+                return "DM*";
+            }
+        },
+        AECS {
+            @Override
+            public String toString() {
+                return "AECS";
+            }
+        },
+        ENTROPY {
+            @Override
+            public String toString() {
+                return "Entropy";
+            }
+        },
+        NM_ENTROPY {
+            @Override
+            public String toString() {
+                return "NM-Entropy";
+            }
+        },
+    }
+
     public static enum BenchmarkDataset {
         ADULT {
             @Override
@@ -126,6 +248,24 @@ public class BenchmarkSetup {
                 return "Ihis";
             }
         },
+        SYNTHETIC_SMALL {
+            @Override
+            public String toString() {
+                return "Synthetic-S";
+            }
+        },
+        SYNTHETIC_MEDIUM {
+            @Override
+            public String toString() {
+                return "Synthetic-M";
+            }
+        },
+        SYNTHETIC_LARGE {
+            @Override
+            public String toString() {
+                return "Synthetic-L";
+            }
+        },
     }
 
     /**
@@ -142,6 +282,20 @@ public class BenchmarkSetup {
         };
     }
 
+    /**
+     * Returns all parallel algorithms. They are not part of the benchmark matrix,
+     * but can be selected by name, see {@link BenchmarkConfiguration}.
+     * @return
+     */
+    public static BenchmarkAlgorithm[] getParallelAlgorithms() {
+        return new BenchmarkAlgorithm[] { 
+                BenchmarkAlgorithm.PARALLEL_FLASH,
+                BenchmarkAlgorithm.PARALLEL_OLA,
+                BenchmarkAlgorithm.PARALLEL_BFS,
+                BenchmarkAlgorithm.PARALLEL_INCOGNITO
+        };
+    }
+
     /**
      * Returns a configuration for the ARX framework
      * @param dataset
@@ -150,26 +304,57 @@ public class BenchmarkSetup {
      * @throws IOException
      */
     public static ARXConfiguration getConfiguration(BenchmarkDataset dataset, BenchmarkCriterion... criteria) throws IOException {
+        return getConfiguration(BenchmarkInput.create(dataset), criteria);
+    }
+
+    /**
+     * Returns a configuration for the ARX framework, using the given (cached) input
+     * @param input
+     * @param criteria
+     * @return
+     * @throws IOException
+     */
+    public static ARXConfiguration getConfiguration(BenchmarkInput input, BenchmarkCriterion... criteria) throws IOException {
+        return getConfiguration(input, criteria, getDefaultParameters(criteria), 0d, BenchmarkMetric.ENTROPY);
+    }
+
+    /**
+     * Returns a configuration for the ARX framework, using the given (cached) input and
+     * the given parameters of the criteria, see {@link #getDefaultParameter(BenchmarkCriterion)}
+     * @param input
+     * @param criteria
+     * @param parameters
+     * @param suppression The maximal fraction of suppressed rows
+     * @param metric
+     * @return
+     * @throws IOException
+     */
+    public static ARXConfiguration getConfiguration(BenchmarkInput input,
+                                                    BenchmarkCriterion[] criteria,
+                                                    double[] parameters,
+                                                    double suppression,
+                                                    BenchmarkMetric metric) throws IOException {
         
+        BenchmarkDataset dataset = input.getDataset();
         ARXConfiguration config = ARXConfiguration.create();
-        config.setMetric(Metric.createEntropyMetric(true));
-        config.setMaxOutliers(0d);
+        config.setMetric(getMetric(metric));
+        config.setMaxOutliers(suppression);
         
-        for (BenchmarkCriterion c : criteria) {
-            switch (c) {
+        for (int i = 0; i < criteria.length; i++) {
+            switch (criteria[i]) {
             case D_PRESENCE:
-                config.addCriterion(new DPresence(0.05d, 0.15d, getResearchSubset(dataset)));
+                config.addCriterion(new DPresence(0.05d, parameters[i], input.getResearchSubset()));
                 break;
             case K_ANONYMITY:
-                config.addCriterion(new KAnonymity(5));
+                config.addCriterion(new KAnonymity((int) parameters[i]));
                 break;
             case L_DIVERSITY:
                 String sensitive = getSensitiveAttribute(dataset);
-                config.addCriterion(new RecursiveCLDiversity(sensitive, 4, 3));
+                config.addCriterion(new RecursiveCLDiversity(sensitive, 4, (int) parameters[i]));
                 break;
             case T_CLOSENESS:
                 sensitive = getSensitiveAttribute(dataset);
-                config.addCriterion(new HierarchicalDistanceTCloseness(sensitive, 0.2d, getHierarchy(dataset, sensitive)));
+                config.addCriterion(new HierarchicalDistanceTCloseness(sensitive, parameters[i], input.getHierarchy(sensitive)));
                 break;
             default:
                 throw new RuntimeException("Invalid criterion");
@@ -178,6 +363,125 @@ public class BenchmarkSetup {
         return config;
     }
 
+    /**
+     * Returns the default parameter of the given criterion, i.e. k, l, t or the upper bound of delta
+     * @param criterion
+     * @return
+     */
+    public static double getDefaultParameter(BenchmarkCriterion criterion) {
+        switch (criterion) {
+        case D_PRESENCE:
+            return 0.15d;
+        case K_ANONYMITY:
+            return 5d;
+        case L_DIVERSITY:
+            return 3d;
+        case T_CLOSENESS:
+            return 0.2d;
+        default:
+            throw new RuntimeException("Invalid criterion");
+        }
+    }
+
+    /**
+     * Returns the default parameters of the given criteria
+     * @param criteria
+     * @return
+     */
+    public static double[] getDefaultParameters(BenchmarkCriterion[] criteria) {
+        double[] result = new double[criteria.length];
+        for (int i = 0; i < criteria.length; i++) {
+            result[i] = getDefaultParameter(criteria[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the information loss metric
+     * @param metric
+     * @return
+     */
+    public static Metric<?> getMetric(BenchmarkMetric metric) {
+        switch (metric) {
+        case AECS:
+            return Metric.createAECSMetric();
+        case DM:
+            return Metric.createDMMetric();
+        case DM_STAR:
+            return Metric.createDMStarMetric();
+        case ENTROPY:
+            return Metric.createEntropyMetric(true);
+        case HEIGHT:
+            return Metric.createHeightMetric();
+        case NM_ENTROPY:
+            return Metric.createEntropyMetric(false);
+        case PRECISION:
+            return Metric.createPrecisionMetric();
+        default:
+            throw new RuntimeException("Invalid metric");
+        }
+    }
+
+    /**
+     * Returns all metrics
+     * @return
+     */
+    public static BenchmarkMetric[] getMetrics() {
+        return BenchmarkMetric.values();
+    }
+
+    /**
+     * Returns the history sizes considered when tuning the history
+     * @return
+     */
+    public static int[] getHistorySizes() {
+        return new int[] { 50, 200, 1000 };
+    }
+
+    /**
+     * Returns the maximal sizes of snapshots relative to the dataset considered when tuning the history
+     * @return
+     */
+    public static double[] getSnapshotSizesDataset() {
+        return new double[] { 0.1d, 0.2d, 0.4d };
+    }
+
+    /**
+     * Returns the maximal sizes of snapshots relative to their predecessors considered when tuning the history
+     * @return
+     */
+    public static double[] getSnapshotSizesSnapshot() {
+        return new double[] { 0.4d, 0.8d };
+    }
+
+    /**
+     * Returns the suppression limits used in suppression sweeps, as fractions of rows
+     * @return
+     */
+    public static double[] getSuppressionLimits() {
+        return new double[] { 0d, 0.01d, 0.02d, 0.05d, 0.1d };
+    }
+
+    /**
+     * Returns the values of the parameter of the given criterion that are used in parameter sweeps
+     * @param criterion
+     * @return
+     */
+    public static double[] getParameters(BenchmarkCriterion criterion) {
+        switch (criterion) {
+        case D_PRESENCE:
+            return new double[] { 0.1d, 0.15d, 0.2d, 0.3d, 0.5d, 0.8d };
+        case K_ANONYMITY:
+            return new double[] { 2d, 5d, 10d, 20d, 50d, 100d };
+        case L_DIVERSITY:
+            return new double[] { 2d, 3d, 4d, 5d, 6d };
+        case T_CLOSENESS:
+            return new double[] { 0.5d, 0.2d, 0.1d, 0.05d, 0.01d };
+        default:
+            throw new RuntimeException("Invalid criterion");
+        }
+    }
+
     /**
      * Returns all sets of criteria
      * @return
@@ -217,26 +521,8 @@ public class BenchmarkSetup {
      */
     @SuppressWarnings("incomplete-switch")
     public static Data getData(BenchmarkDataset dataset, BenchmarkCriterion[] criteria) throws IOException {
-        Data data = null;
-        switch (dataset) {
-        case ADULT:
-            data = Data.create("data/adult.csv", ';');
-            break;
-        case ATUS:
-            data = Data.create("data/atus.csv", ';');
-            break;
-        case CUP:
-            data = Data.create("data/cup.csv", ';');
-            break;
-        case FARS:
-            data = Data.create("data/fars.csv", ';');
-            break;
-        case IHIS:
-            data = Data.create("data/ihis.csv", ';');
-            break;
-        default:
-            throw new RuntimeException("Invalid dataset");
-        }
+        generate(dataset);
+        Data data = Data.create(getDataFile(dataset), ';');
 
         if (criteria != null) {
             for (String qi : getQuasiIdentifyingAttributes(dataset)) {
@@ -271,35 +557,230 @@ public class BenchmarkSetup {
     }
 
     /**
-     * Returns the generalization hierarchy for the dataset and attribute
+     * Returns all synthetic datasets, which can be used when the benchmark datasets are not available
+     * @return
+     */
+    public static BenchmarkDataset[] getSyntheticDatasets() {
+        return new BenchmarkDataset[] {
+         BenchmarkDataset.SYNTHETIC_SMALL,
+         BenchmarkDataset.SYNTHETIC_MEDIUM,
+         BenchmarkDataset.SYNTHETIC_LARGE
+                                        };
+    }
+
+    /**
+     * Returns the prefix of all files belonging to the dataset
      * @param dataset
-     * @param attribute
      * @return
-     * @throws IOException
      */
-    public static Hierarchy getHierarchy(BenchmarkDataset dataset, String attribute) throws IOException {
+    private static String getFilePrefix(BenchmarkDataset dataset) {
         switch (dataset) {
         case ADULT:
-            return Hierarchy.create("hierarchies/adult_hierarchy_" + attribute + ".csv", ';');
+            return "adult";
         case ATUS:
-            return Hierarchy.create("hierarchies/atus_hierarchy_" + attribute + ".csv", ';');
+            return "atus";
         case CUP:
-            return Hierarchy.create("hierarchies/cup_hierarchy_" + attribute + ".csv", ';');
+            return "cup";
         case FARS:
-            return Hierarchy.create("hierarchies/fars_hierarchy_" + attribute + ".csv", ';');
+            return "fars";
         case IHIS:
-            return Hierarchy.create("hierarchies/ihis_hierarchy_" + attribute + ".csv", ';');
+            return "ihis";
+        case SYNTHETIC_SMALL:
+        case SYNTHETIC_MEDIUM:
+        case SYNTHETIC_LARGE:
+            return dataset.name().toLowerCase();
         default:
             throw new RuntimeException("Invalid dataset");
         }
     }
 
+    /**
+     * Generates the files of the given dataset, if it is synthetic and has not been generated
+     * with the same parameters before. Must be called before the files of a synthetic dataset
+     * are read, see {@link BenchmarkCache}. Does nothing for all other datasets.
+     * @param dataset
+     * @throws IOException
+     */
+    public static void generate(BenchmarkDataset dataset) throws IOException {
+        switch (dataset) {
+        case SYNTHETIC_SMALL:
+        case SYNTHETIC_MEDIUM:
+        case SYNTHETIC_LARGE:
+            generate(getGenerator(dataset), getFilePrefix(dataset));
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Generates the files of a synthetic dataset, unless they have been generated
+     * with the same parameters before. JVMs executing cells concurrently are
+     * synchronized with a file lock. Files are written to temporary files first,
+     * which are then moved into place, and the parameters are stored last.
+     * @param generator
+     * @param prefix
+     * @throws IOException
+     */
+    private static synchronized void generate(BenchmarkGenerator generator, String prefix) throws IOException {
+        if (GENERATED.contains(prefix)) {
+            return;
+        }
+        FileChannel lock = FileChannel.open(new File("data/" + prefix + ".lock").toPath(),
+                                            StandardOpenOption.CREATE,
+                                            StandardOpenOption.WRITE);
+        try {
+            // Released when the channel is closed
+            lock.lock();
+
+            // Check
+            File stamp = new File("data/" + prefix + ".txt");
+            String parameters = generator.toString();
+            if (stamp.exists() && new String(Files.readAllBytes(stamp.toPath()), "UTF-8").equals(parameters)) {
+                GENERATED.add(prefix);
+                return;
+            }
+
+            // Prepare: the data, the subset and the hierarchies of all attributes
+            System.out.println("Generating: " + prefix + " (" + parameters + ")");
+            String[] qis = generator.getQuasiIdentifiers();
+            File[] files = new File[qis.length + 3];
+            files[0] = new File("data/" + prefix + ".csv");
+            files[1] = new File("data/" + prefix + "_subset.csv");
+            for (int i = 0; i < qis.length; i++) {
+                files[i + 2] = new File("hierarchies/" + prefix + "_hierarchy_" + qis[i] + ".csv");
+            }
+            files[qis.length + 2] = new File("hierarchies/" + prefix + "_hierarchy_" + generator.getSensitiveAttribute() + ".csv");
+            File[] temps = new File[files.length];
+
+            // Generate and move into place
+            try {
+                for (int i = 0; i < files.length; i++) {
+                    temps[i] = File.createTempFile(files[i].getName(), ".tmp", files[i].getAbsoluteFile().getParentFile());
+                }
+                generator.generate(temps[0], temps[1], Arrays.copyOfRange(temps, 2, temps.length));
+                Files.deleteIfExists(stamp.toPath());
+                for (int i = 0; i < files.length; i++) {
+                    Files.move(temps[i].toPath(), files[i].toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } finally {
+                for (File temp : temps) {
+                    if (temp != null) {
+                        Files.deleteIfExists(temp.toPath());
+                    }
+                }
+            }
+            Files.write(stamp.toPath(), parameters.getBytes("UTF-8"));
+            GENERATED.add(prefix);
+        } finally {
+            lock.close();
+        }
+    }
+
+    /**
+     * Redefines the files or attributes of the given dataset for all subsequent runs in this JVM
+     * @param dataset
+     * @param definition
+     */
+    public static void setDefinition(BenchmarkDataset dataset, DatasetDefinition definition) {
+        DEFINITIONS.put(dataset, definition);
+    }
+
+    /**
+     * Redefines the generator of the given synthetic dataset for all subsequent runs in this JVM. The
+     * dataset is generated again when the parameters differ from the ones it has been generated with.
+     * @param dataset
+     * @param generator
+     */
+    public static void setGenerator(BenchmarkDataset dataset, BenchmarkGenerator generator) {
+        // Check
+        getGenerator(dataset);
+        GENERATORS.put(dataset, generator);
+    }
+
+    /**
+     * Returns the generator for a synthetic dataset
+     * @param dataset
+     * @return
+     */
+    public static BenchmarkGenerator getGenerator(BenchmarkDataset dataset) {
+        BenchmarkGenerator generator = GENERATORS.get(dataset);
+        if (generator != null) {
+            return generator;
+        }
+        switch (dataset) {
+        case SYNTHETIC_SMALL:
+            return new BenchmarkGenerator(10000, new int[] { 5, 4, 4, 3, 3, 2 }, 3, 4, 1d, 0.1d, 0L);
+        case SYNTHETIC_MEDIUM:
+            return new BenchmarkGenerator(1000000, new int[] { 5, 5, 4, 4, 3, 3, 2, 2 }, 3, 4, 1d, 0.1d, 0L);
+        case SYNTHETIC_LARGE:
+            return new BenchmarkGenerator(10000000, new int[] { 5, 5, 4, 4, 3, 3, 2, 2 }, 3, 4, 1d, 0.1d, 0L);
+        default:
+            throw new RuntimeException("Invalid dataset");
+        }
+    }
+
+    /**
+     * Returns the generalization hierarchy for the dataset and attribute
+     * @param dataset
+     * @param attribute
+     * @return
+     * @throws IOException
+     */
+    public static Hierarchy getHierarchy(BenchmarkDataset dataset, String attribute) throws IOException {
+        return Hierarchy.create(getHierarchyFile(dataset, attribute), ';');
+    }
+
+    /**
+     * Returns the file containing the dataset
+     * @param dataset
+     * @return
+     */
+    public static String getDataFile(BenchmarkDataset dataset) {
+        DatasetDefinition definition = DEFINITIONS.get(dataset);
+        if (definition != null && definition.data != null) {
+            return definition.data;
+        }
+        return "data/" + getFilePrefix(dataset) + ".csv";
+    }
+
+    /**
+     * Returns the file containing the generalization hierarchy for the dataset and attribute
+     * @param dataset
+     * @param attribute
+     * @return
+     */
+    public static String getHierarchyFile(BenchmarkDataset dataset, String attribute) {
+        DatasetDefinition definition = DEFINITIONS.get(dataset);
+        if (definition != null && definition.hierarchies != null) {
+            return definition.hierarchies + attribute + ".csv";
+        }
+        return "hierarchies/" + getFilePrefix(dataset) + "_hierarchy_" + attribute + ".csv";
+    }
+
+    /**
+     * Returns the file containing the research subset for the dataset
+     * @param dataset
+     * @return
+     */
+    public static String getSubsetFile(BenchmarkDataset dataset) {
+        DatasetDefinition definition = DEFINITIONS.get(dataset);
+        if (definition != null && definition.subset != null) {
+            return definition.subset;
+        }
+        return "data/" + getFilePrefix(dataset) + "_subset.csv";
+    }
+
     /**
      * Returns the quasi-identifiers for the dataset
      * @param dataset
      * @return
      */
     public static String[] getQuasiIdentifyingAttributes(BenchmarkDataset dataset) {
+        DatasetDefinition definition = DEFINITIONS.get(dataset);
+        if (definition != null && definition.qis != null) {
+            return definition.qis.clone();
+        }
         switch (dataset) {
         case ADULT:
             return new String[] {   "age",
@@ -344,6 +825,10 @@ public class BenchmarkSetup {
                                     "REGION",
                                     "SEX",
                                     "YEAR" };
+        case SYNTHETIC_SMALL:
+        case SYNTHETIC_MEDIUM:
+        case SYNTHETIC_LARGE:
+            return getGenerator(dataset).getQuasiIdentifiers();
         default:
             throw new RuntimeException("Invalid dataset");
         }
@@ -356,20 +841,7 @@ public class BenchmarkSetup {
      * @throws IOException
      */
     public static DataSubset getResearchSubset(BenchmarkDataset dataset) throws IOException {
-        switch (dataset) {
-        case ADULT:
-            return DataSubset.create(getData(dataset), Data.create("data/adult_subset.csv", ';'));
-        case ATUS:
-            return DataSubset.create(getData(dataset), Data.create("data/atus_subset.csv", ';'));
-        case CUP:
-            return DataSubset.create(getData(dataset), Data.create("data/cup_subset.csv", ';'));
-        case FARS:
-            return DataSubset.create(getData(dataset), Data.create("data/fars_subset.csv", ';'));
-        case IHIS:
-            return DataSubset.create(getData(dataset), Data.create("data/ihis_subset.csv", ';'));
-        default:
-            throw new RuntimeException("Invalid dataset");
-        }
+        return DataSubset.create(getData(dataset), Data.create(getSubsetFile(dataset), ';'));
     }
 
     /**
@@ -378,6 +850,10 @@ public class BenchmarkSetup {
      * @return
      */
     public static String getSensitiveAttribute(BenchmarkDataset dataset) {
+        DatasetDefinition definition = DEFINITIONS.get(dataset);
+        if (definition != null && definition.sensitive != null) {
+            return definition.sensitive;
+        }
         switch (dataset) {
         case ADULT:
             return "occupation";
@@ -389,6 +865,10 @@ public class BenchmarkSetup {
             return "istatenum";
         case IHIS:
             return "EDUC";
+        case SYNTHETIC_SMALL:
+        case SYNTHETIC_MEDIUM:
+        case SYNTHETIC_LARGE:
+            return getGenerator(dataset).getSensitiveAttribute();
         default:
             throw new RuntimeException("Invalid dataset");
         }
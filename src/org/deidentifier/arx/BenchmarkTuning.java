@@ -0,0 +1,297 @@
+/*
+ * Source code of our CBMS 2014 paper "A benchmark of globally-optimal
+ *      methods for the de-identification of biomedical data"
+ *
+ * Copyright (C) 2014 Florian Kohlmayer, Fabian Prasser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.deidentifier.arx;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.deidentifier.arx.BenchmarkSetup.BenchmarkDataset;
+
+/**
+ * Tuned settings of the history of the NodeChecker, i.e. its size and the thresholds
+ * for storing snapshots, for each pair of algorithm and dataset. Settings are found by
+ * successive halving on the execution time of the cells of the benchmark matrix: all
+ * candidates from {@link BenchmarkSetup#getHistorySizes()},
+ * {@link BenchmarkSetup#getSnapshotSizesDataset()} and {@link BenchmarkSetup#getSnapshotSizesSnapshot()}
+ * are executed once, the faster half is kept and executed with twice the number of
+ * repetitions, until one candidate remains. Candidates exceeding the time limit are
+ * considered to be infinitely slow. Settings are stored in a properties file and used by
+ * {@link BenchmarkDriver} for all later runs, which record them as measures. Pairs without
+ * tuned settings use the defaults.
+ *
+ * @author Fabian Prasser
+ */
+public class BenchmarkTuning {
+
+    /**
+     * Settings of the history
+     */
+    public static class Settings {
+
+        /** History size */
+        public final int    historySize;
+        /** Maximal size of snapshots relative to the dataset */
+        public final double snapshotSizeDataset;
+        /** Maximal size of snapshots relative to their predecessors */
+        public final double snapshotSizeSnapshot;
+
+        /**
+         * Creates new settings
+         *
+         * @param historySize
+         * @param snapshotSizeDataset
+         * @param snapshotSizeSnapshot
+         */
+        public Settings(int historySize, double snapshotSizeDataset, double snapshotSizeSnapshot) {
+            if (historySize < 0 || snapshotSizeDataset <= 0d || snapshotSizeDataset > 1d ||
+                snapshotSizeSnapshot <= 0d || snapshotSizeSnapshot > 1d) {
+                throw new IllegalArgumentException("Invalid settings: " + historySize + ", " +
+                                                   snapshotSizeDataset + ", " + snapshotSizeSnapshot);
+            }
+            this.historySize = historySize;
+            this.snapshotSizeDataset = snapshotSizeDataset;
+            this.snapshotSizeSnapshot = snapshotSizeSnapshot;
+        }
+
+        /**
+         * Parses settings from their string representation
+         *
+         * @param string
+         * @return
+         */
+        public static Settings parse(String string) {
+            String[] fields = string.split(",");
+            if (fields.length != 3) {
+                throw new IllegalArgumentException("Invalid settings: " + string);
+            }
+            return new Settings(Integer.parseInt(fields[0].trim()),
+                                Double.parseDouble(fields[1].trim()),
+                                Double.parseDouble(fields[2].trim()));
+        }
+
+        @Override
+        public String toString() {
+            return historySize + ", " + snapshotSizeDataset + ", " + snapshotSizeSnapshot;
+        }
+    }
+
+    /** Default settings */
+    public static final Settings DEFAULT = new Settings(200, 0.2d, 0.8d);
+
+    /** The file, null if settings are not persisted */
+    private final File           file;
+    /** The settings */
+    private final Properties     properties = new Properties();
+
+    /**
+     * Creates an instance without tuned settings, which always returns the defaults
+     */
+    public BenchmarkTuning() {
+        this.file = null;
+    }
+
+    /**
+     * Creates an instance that is backed by the given file, which is read if it exists
+     *
+     * @param file
+     * @throws IOException
+     */
+    public BenchmarkTuning(File file) throws IOException {
+        this.file = file;
+        if (file.exists()) {
+            InputStream in = new FileInputStream(file);
+            try {
+                properties.load(in);
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the settings for the given algorithm and dataset, or the defaults if
+     * they have not been tuned
+     *
+     * @param algorithm
+     * @param dataset
+     * @return
+     */
+    public synchronized Settings get(String algorithm, BenchmarkDataset dataset) {
+        String value = properties.getProperty(getKey(algorithm, dataset));
+        return value == null ? DEFAULT : Settings.parse(value);
+    }
+
+    /**
+     * Tunes the settings for the algorithm and dataset of the given cells, which must all
+     * share the same pair, and stores the best settings
+     *
+     * @param driver
+     * @param cells The workload
+     * @return The best settings
+     * @throws IOException
+     */
+    public Settings tune(BenchmarkDriver driver, List<BenchmarkCell> cells) throws IOException {
+
+        // Check
+        if (cells.isEmpty()) {
+            throw new IllegalArgumentException("No cells to tune");
+        }
+        String algorithm = cells.get(0).algorithm;
+        BenchmarkDataset dataset = cells.get(0).dataset;
+        for (BenchmarkCell cell : cells) {
+            if (!cell.algorithm.equals(algorithm) || cell.dataset != dataset) {
+                throw new IllegalArgumentException("Cells must share algorithm and dataset");
+            }
+        }
+
+        // Warmup
+        for (BenchmarkCell cell : cells) {
+            driver.anonymize(cell, null, DEFAULT, driver.getDeadline());
+        }
+
+        // Build candidates
+        List<Settings> candidates = new ArrayList<Settings>();
+        for (int historySize : BenchmarkSetup.getHistorySizes()) {
+            for (double snapshotSizeDataset : BenchmarkSetup.getSnapshotSizesDataset()) {
+                for (double snapshotSizeSnapshot : BenchmarkSetup.getSnapshotSizesSnapshot()) {
+                    candidates.add(new Settings(historySize, snapshotSizeDataset, snapshotSizeSnapshot));
+                }
+            }
+        }
+
+        // Successive halving
+        int repetitions = 1;
+        while (candidates.size() > 1) {
+
+            // Execute
+            final List<Settings> round = candidates;
+            final double[] times = new double[round.size()];
+            for (int i = 0; i < round.size(); i++) {
+                times[i] = getTime(driver, cells, round.get(i), repetitions);
+            }
+
+            // Keep the faster half
+            List<Integer> indices = new ArrayList<Integer>();
+            for (int i = 0; i < round.size(); i++) {
+                indices.add(i);
+            }
+            Collections.sort(indices, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    return Double.compare(times[o1], times[o2]);
+                }
+            });
+            candidates = new ArrayList<Settings>();
+            for (int i = 0; i < (round.size() + 1) / 2; i++) {
+                candidates.add(round.get(indices.get(i)));
+            }
+            repetitions *= 2;
+        }
+
+        // Store
+        Settings result = candidates.get(0);
+        synchronized (this) {
+            properties.setProperty(getKey(algorithm, dataset), result.toString());
+            store();
+        }
+        return result;
+    }
+
+    /**
+     * Returns all tuned settings, ordered by algorithm and dataset
+     */
+    @Override
+    public synchronized String toString() {
+        return new TreeMap<Object, Object>(properties).toString();
+    }
+
+    /**
+     * Returns the key for the given algorithm and dataset
+     *
+     * @param algorithm
+     * @param dataset
+     * @return
+     */
+    private String getKey(String algorithm, BenchmarkDataset dataset) {
+        return algorithm + "/" + dataset.name();
+    }
+
+    /**
+     * Returns the sum of the mean execution times of the given cells, or positive
+     * infinity if any run exceeded the time limit, as its time is capped and would
+     * make the candidate appear faster than it is
+     *
+     * @param driver
+     * @param cells
+     * @param settings
+     * @param repetitions
+     * @return
+     * @throws IOException
+     */
+    private double getTime(BenchmarkDriver driver,
+                           List<BenchmarkCell> cells,
+                           Settings settings,
+                           int repetitions) throws IOException {
+        double time = 0d;
+        for (BenchmarkCell cell : cells) {
+            BenchmarkResult result = new BenchmarkResult();
+            for (int i = 0; i < repetitions; i++) {
+                if (!driver.anonymize(cell, result, settings, driver.getDeadline())) {
+                    return Double.POSITIVE_INFINITY;
+                }
+            }
+            for (double value : result.getValues(BenchmarkMain.EXECUTION_TIME)) {
+                time += value / repetitions;
+            }
+        }
+        return time;
+    }
+
+    /**
+     * Writes the settings to the file, if any
+     *
+     * @throws IOException
+     */
+    private void store() throws IOException {
+        if (file == null) {
+            return;
+        }
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        OutputStream out = new FileOutputStream(file);
+        try {
+            properties.store(out, "Tuned settings of the history: size, snapshot size (dataset), snapshot size (snapshot)");
+        } finally {
+            out.close();
+        }
+    }
+}
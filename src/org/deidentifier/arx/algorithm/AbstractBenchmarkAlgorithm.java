@@ -20,12 +20,25 @@
 
 package org.deidentifier.arx.algorithm;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
 import org.deidentifier.arx.framework.check.INodeChecker;
+import org.deidentifier.arx.framework.check.INodeChecker.Result;
 import org.deidentifier.arx.framework.lattice.Lattice;
 import org.deidentifier.arx.framework.lattice.Node;
+import org.deidentifier.arx.metric.Metric;
+import org.deidentifier.arx.metric.TimedMetric;
 
 /**
- * Abstract base class for algorithms used in the benchmark
+ * Abstract base class for algorithms used in the benchmark. Parallel variants read and write
+ * the properties of the nodes in the lattice through a {@link NodeProperties} store, so that
+ * they can be shared by several threads without a global lock. Sequential variants access
+ * the nodes directly.
  * @author Fabian Prasser
  */
 public abstract class AbstractBenchmarkAlgorithm extends AbstractAlgorithm {
@@ -34,10 +47,22 @@ public abstract class AbstractBenchmarkAlgorithm extends AbstractAlgorithm {
     protected int   rollups;
     /** The number of checks */
     protected int   checks;
+    /** The time spent checking transformations in nanoseconds */
+    protected long  checkTime;
     /** The node checked previously */
     protected Node  previous;
     /** The hierarchy heights for each QI. */
     protected int[] hierarchyHeights;
+    /** The deadline, in milliseconds since the epoch */
+    private long    deadline  = Long.MAX_VALUE;
+    /** Whether the privacy criteria are monotonic */
+    private boolean monotonic = true;
+    /** Whether the metric is monotonic */
+    private boolean metricMonotonic = true;
+    /** The properties of the nodes in the lattice, null if the nodes are accessed directly */
+    private final NodeProperties properties;
+    /** The worker threads of parallel variants */
+    protected final WorkerThreads threads = new WorkerThreads();
 
     /**
      * Constructor
@@ -45,13 +70,91 @@ public abstract class AbstractBenchmarkAlgorithm extends AbstractAlgorithm {
      * @param checker
      */
     protected AbstractBenchmarkAlgorithm(Lattice lattice, INodeChecker checker) {
+        this(lattice, checker, null);
+    }
+
+    /**
+     * Constructor for parallel variants, which access the properties of the nodes in the lattice
+     * through the given store
+     * @param lattice
+     * @param checker
+     * @param properties The store, null if the nodes are accessed directly
+     */
+    protected AbstractBenchmarkAlgorithm(Lattice lattice, INodeChecker checker, NodeProperties properties) {
         super(lattice, checker);
+        this.properties = properties;
         this.hierarchyHeights = lattice.getTop().getTransformation().clone();
         for (int i=0; i<hierarchyHeights.length; i++) {
             this.hierarchyHeights[i]++;
         }
     }
 
+    /**
+     * Sets a deadline. Each check performed after the deadline has passed
+     * aborts the traversal with a {@link TimeLimitExceededException}.
+     * @param deadline in milliseconds since the epoch
+     */
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Sets whether the privacy criteria are monotonic, see {@link org.deidentifier.arx.ARXConfiguration#isCriterionMonotonic()}.
+     * If they are not, e.g. because non-monotonic criteria are combined with a suppression limit, anonymous
+     * transformations are not propagated to their successors and non-anonymous transformations are only
+     * propagated to their predecessors if they are not k-anonymous, which is monotonic even with suppression.
+     * @param monotonic
+     */
+    public void setMonotonic(boolean monotonic) {
+        this.monotonic = monotonic;
+    }
+
+    /**
+     * Sets whether the metric is monotonic with the given suppression limit. Without suppression, every metric
+     * is monotonic. If it is not, e.g. for non-uniform entropy, discernability or AECS with a suppression limit,
+     * successors of anonymous transformations may have a lower information loss, and are therefore not pruned
+     * but checked as well.
+     * @param monotonic
+     */
+    public void setMetricMonotonic(boolean monotonic) {
+        this.metricMonotonic = monotonic;
+    }
+
+    /**
+     * Returns the time spent checking transformations in nanoseconds, including
+     * the time spent evaluating the metric
+     * @return
+     */
+    public long getCheckTime() {
+        return checkTime;
+    }
+
+    /**
+     * Returns the time spent evaluating the metric in nanoseconds, if it is a {@link TimedMetric}
+     * @return
+     */
+    public long getMetricTime() {
+        return getTime(checker.getMetric());
+    }
+
+    /**
+     * Returns the number of bytes allocated by the worker threads of parallel variants,
+     * or -1 if this is not supported by the JVM
+     * @return
+     */
+    public long getWorkerAllocatedBytes() {
+        return threads.getAllocatedBytes();
+    }
+
+    /**
+     * Returns the CPU time consumed by the worker threads of parallel variants in nanoseconds,
+     * or -1 if this is not supported by the JVM
+     * @return
+     */
+    public long getWorkerCpuTime() {
+        return threads.getCpuTime();
+    }
+
     /**
      * Returns the number of checks
      * @return
@@ -75,7 +178,10 @@ public abstract class AbstractBenchmarkAlgorithm extends AbstractAlgorithm {
     protected void check(Node node) {
 
         // Check
-        lattice.setChecked(node, checker.check(node));
+        checkDeadline();
+        long time = System.nanoTime();
+        setChecked(node, checker.check(node));
+        checkTime += System.nanoTime() - time;
         trackOptimum(node);
         checks++;
 
@@ -86,12 +192,7 @@ public abstract class AbstractBenchmarkAlgorithm extends AbstractAlgorithm {
         }
 
         // Check if successor
-        boolean successor = true;
-        for (int i = 0; i < node.getTransformation().length; i++) {
-            if (node.getTransformation()[i] < previous.getTransformation()[i]) {
-                successor = false;
-            }
-        }
+        boolean successor = isSuccessor(node, previous);
 
         previous = node;
 
@@ -101,31 +202,160 @@ public abstract class AbstractBenchmarkAlgorithm extends AbstractAlgorithm {
         }
     }
 
+    /**
+     * Aborts the traversal if the deadline has passed
+     */
+    protected void checkDeadline() {
+        if (System.currentTimeMillis() > deadline) {
+            throw new TimeLimitExceededException("Deadline exceeded after " + checks + " checks");
+        }
+    }
+
+    /**
+     * Executes the given tasks with the given pool and returns their results. Exceptions
+     * thrown by a task, e.g. a {@link TimeLimitExceededException}, are rethrown.
+     * @param pool
+     * @param tasks
+     * @return
+     */
+    protected <T> List<T> invokeAll(ExecutorService pool, List<Callable<T>> tasks) {
+        List<Future<T>> futures = new ArrayList<Future<T>>();
+        for (Callable<T> task : tasks) {
+            futures.add(pool.submit(task));
+        }
+        List<T> results = new ArrayList<T>();
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for workers", e);
+        } catch (ExecutionException e) {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * Returns the time spent evaluating the given metric in nanoseconds, if it is a {@link TimedMetric}
+     * @param metric
+     * @return
+     */
+    protected long getTime(Metric<?> metric) {
+        return metric instanceof TimedMetric ? ((TimedMetric<?>) metric).getTime() : 0L;
+    }
+
     /**
      * Returns whether the transformation represented by the node was
      * determined to be anonymous. Returns <code>null</code> if such information
      * is not available
+     * @param lattice
      * @param node
      * @return
      */
-    protected Boolean isAnonymous(Node node) {
-        if (node.hasProperty(Node.PROPERTY_ANONYMOUS)) {
+    protected Boolean isAnonymous(Lattice lattice, Node node) {
+        if (hasProperty(lattice, node, Node.PROPERTY_ANONYMOUS)) {
             return true;
-        } else if (node.hasProperty(Node.PROPERTY_NOT_ANONYMOUS)) {
+        } else if (hasProperty(lattice, node, Node.PROPERTY_NOT_ANONYMOUS)) {
             return false;
         } else {
             return null;
         }
     }
 
+    /**
+     * Returns whether the transformation represented by the node was
+     * determined to be anonymous. Returns <code>null</code> if such information
+     * is not available
+     * @param node
+     * @return
+     */
+    protected Boolean isAnonymous(Node node) {
+        return isAnonymous(lattice, node);
+    }
+
+    /**
+     * Returns whether the node has all of the given properties
+     * @param lattice
+     * @param node
+     * @param property
+     * @return
+     */
+    protected boolean hasProperty(Lattice lattice, Node node, int property) {
+        NodeProperties properties = getProperties(lattice);
+        return properties != null ? properties.has(node, property) : node.hasProperty(property);
+    }
+
+    /**
+     * Returns whether the node has all of the given properties
+     * @param node
+     * @param property
+     * @return
+     */
+    protected boolean hasProperty(Node node, int property) {
+        return hasProperty(lattice, node, property);
+    }
+
+    /**
+     * Returns whether the privacy criteria are monotonic
+     * @return
+     */
+    protected boolean isMonotonic() {
+        return monotonic;
+    }
+
+    /**
+     * Returns whether successors of anonymous transformations can be pruned, i.e. whether
+     * the privacy criteria and the metric are monotonic
+     * @return
+     */
+    protected boolean isPruningSuccessors() {
+        return monotonic && metricMonotonic;
+    }
+
+    /**
+     * Returns whether the node is a successor of, or equal to, the previous node,
+     * i.e. whether the previous node could have been used for a roll-up
+     * @param node
+     * @param previous
+     * @return
+     */
+    protected boolean isSuccessor(Node node, Node previous) {
+        for (int i = 0; i < node.getTransformation().length; i++) {
+            if (node.getTransformation()[i] < previous.getTransformation()[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the node has been tagged already
+     * @param lattice
+     * @param node
+     * @return
+     */
+    protected boolean isTagged(Lattice lattice, Node node) {
+        return hasProperty(lattice, node, Node.PROPERTY_ANONYMOUS) ||
+               hasProperty(lattice, node, Node.PROPERTY_NOT_ANONYMOUS);
+    }
+
     /**
      * Returns whether the node has been tagged already
      * @param node
      * @return
      */
     protected boolean isTagged(Node node) {
-        return node.hasProperty(Node.PROPERTY_ANONYMOUS) ||
-               node.hasProperty(Node.PROPERTY_NOT_ANONYMOUS);
+        return isTagged(lattice, node);
     }
 
     /**
@@ -136,9 +366,9 @@ public abstract class AbstractBenchmarkAlgorithm extends AbstractAlgorithm {
      */
     protected void setAnonymous(Lattice lattice, Node node, boolean anonymous) {
         if (anonymous) {
-            lattice.setProperty(node, Node.PROPERTY_ANONYMOUS);
+            setProperty(lattice, node, Node.PROPERTY_ANONYMOUS);
         } else {
-            lattice.setProperty(node, Node.PROPERTY_NOT_ANONYMOUS);
+            setProperty(lattice, node, Node.PROPERTY_NOT_ANONYMOUS);
         }
     }
 
@@ -151,16 +381,64 @@ public abstract class AbstractBenchmarkAlgorithm extends AbstractAlgorithm {
         setAnonymous(lattice, node, anonymous);
     }
 
+    /**
+     * Stores the result of checking a transformation
+     * @param lattice
+     * @param node
+     * @param result
+     */
+    protected void setChecked(Lattice lattice, Node node, Result result) {
+        NodeProperties properties = getProperties(lattice);
+        if (properties != null) {
+            properties.setChecked(node, result);
+        } else {
+            lattice.setChecked(node, result);
+        }
+    }
+
+    /**
+     * Stores the result of checking a transformation
+     * @param node
+     * @param result
+     */
+    protected void setChecked(Node node, Result result) {
+        setChecked(lattice, node, result);
+    }
+
+    /**
+     * Sets the given properties of a transformation
+     * @param lattice
+     * @param node
+     * @param property
+     */
+    protected void setProperty(Lattice lattice, Node node, int property) {
+        NodeProperties properties = getProperties(lattice);
+        if (properties != null) {
+            properties.set(node, property);
+        } else {
+            lattice.setProperty(node, property);
+        }
+    }
+
+    /**
+     * Sets the given properties of a transformation
+     * @param node
+     * @param property
+     */
+    protected void setProperty(Node node, int property) {
+        setProperty(lattice, node, property);
+    }
+
     /**
      * Predictively tags the search space with the node's anonymity property
      * @param node
      * @param lattice
      */
     protected void tag(Lattice lattice, Node node) {
-        if (node.hasProperty(Node.PROPERTY_ANONYMOUS)) {
+        if (hasProperty(lattice, node, Node.PROPERTY_ANONYMOUS)) {
             tagAnonymous(lattice, node);
         }
-        else if (node.hasProperty(Node.PROPERTY_NOT_ANONYMOUS)) {
+        else if (hasProperty(lattice, node, Node.PROPERTY_NOT_ANONYMOUS)) {
             tagNotAnonymous(lattice, node);
         }
     }
@@ -179,8 +457,10 @@ public abstract class AbstractBenchmarkAlgorithm extends AbstractAlgorithm {
      * @param lattice
      */
     protected void tagAnonymous(Lattice lattice, Node node) {
-        lattice.setPropertyUpwards(node, true, Node.PROPERTY_ANONYMOUS |
-                                               Node.PROPERTY_SUCCESSORS_PRUNED);
+        if (isPruningSuccessors()) {
+            setPropertyUpwards(lattice, node, true, Node.PROPERTY_ANONYMOUS |
+                                                    Node.PROPERTY_SUCCESSORS_PRUNED);
+        }
     }
 
     /**
@@ -197,7 +477,12 @@ public abstract class AbstractBenchmarkAlgorithm extends AbstractAlgorithm {
      * @param lattice
      */
     protected void tagNotAnonymous(Lattice lattice, Node node) {
-        lattice.setPropertyDownwards(node, false, Node.PROPERTY_NOT_ANONYMOUS);
+        if (monotonic) {
+            setPropertyDownwards(lattice, node, false, Node.PROPERTY_NOT_ANONYMOUS);
+        } else if (hasProperty(lattice, node, Node.PROPERTY_NOT_K_ANONYMOUS)) {
+            setPropertyDownwards(lattice, node, false, Node.PROPERTY_NOT_ANONYMOUS |
+                                                       Node.PROPERTY_NOT_K_ANONYMOUS);
+        }
     }
 
     /**
@@ -207,4 +492,47 @@ public abstract class AbstractBenchmarkAlgorithm extends AbstractAlgorithm {
     protected void tagNotAnonymous(Node node) {
         tagNotAnonymous(lattice, node);
     }
+
+    /**
+     * Returns the store for the properties of the nodes in the given lattice. Returns <code>null</code>
+     * for sequential variants and for lattices other than the lattice of this algorithm, e.g. the lattices
+     * built by Incognito for subsets of the quasi-identifiers, which are only accessed by one thread at a time.
+     * @param lattice
+     * @return
+     */
+    private NodeProperties getProperties(Lattice lattice) {
+        return lattice == this.lattice ? properties : null;
+    }
+
+    /**
+     * Sets the given properties for all predecessors of a transformation
+     * @param lattice
+     * @param node
+     * @param include
+     * @param property
+     */
+    private void setPropertyDownwards(Lattice lattice, Node node, boolean include, int property) {
+        NodeProperties properties = getProperties(lattice);
+        if (properties != null) {
+            properties.setDownwards(node, include, property);
+        } else {
+            lattice.setPropertyDownwards(node, include, property);
+        }
+    }
+
+    /**
+     * Sets the given properties for all successors of a transformation
+     * @param lattice
+     * @param node
+     * @param include
+     * @param property
+     */
+    private void setPropertyUpwards(Lattice lattice, Node node, boolean include, int property) {
+        NodeProperties properties = getProperties(lattice);
+        if (properties != null) {
+            properties.setUpwards(node, include, property);
+        } else {
+            lattice.setPropertyUpwards(node, include, property);
+        }
+    }
 }
@@ -25,9 +25,13 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import org.deidentifier.arx.ARXConfiguration.ARXConfigurationInternal;
-import org.deidentifier.arx.framework.check.INodeChecker;
 import org.deidentifier.arx.framework.check.INodeChecker.Result;
 import org.deidentifier.arx.framework.check.NodeChecker;
 import org.deidentifier.arx.framework.check.history.History;
@@ -36,20 +40,50 @@ import org.deidentifier.arx.framework.lattice.Lattice;
 import org.deidentifier.arx.framework.lattice.LatticeBuilder;
 import org.deidentifier.arx.framework.lattice.Node;
 import org.deidentifier.arx.metric.Metric;
+import org.deidentifier.arx.metric.TimedMetric;
 
 /**
  * This class implements the Incognito algorithm proposed in:<br>
  * <br>
  * K. LeFevre et al. "Incognito: efficient full-domain K-anonymity".
- * Proceedings of the 2005 ACM SIGMOD international Conference on Management of Data, 49-60.
+ * Proceedings of the 2005 ACM SIGMOD international Conference on Management of Data, 49-60.<br>
+ * <br>
+ * Subsets of the quasi-identifiers of the same size only depend on the results obtained for
+ * smaller subsets. With more than one worker, all subsets of a given size are therefore
+ * processed concurrently, each with its own checker, metric, transformer buffer and local lattice.
+ * Different subsets of the same size map to the same nodes of the global lattice, e.g. their
+ * bottom nodes, which are therefore checked by one checker at a time. Non-anonymous
+ * transformations are collected into the context after each round, in the same order as in
+ * a sequential run.
  * 
  * @author Fabian Prasser
  * @author Florian Kohlmayer
  */
 public class AlgorithmIncognito extends AbstractBenchmarkAlgorithm {
 
+    /**
+     * Counters of a worker processing one subset of the quasi-identifiers
+     */
+    private static class Statistics {
+
+        /** The number of checks */
+        int  checks;
+        /** The number of rollups that could have been performed */
+        int  rollups;
+        /** The time spent checking transformations in nanoseconds */
+        long checkTime;
+        /** The node checked previously */
+        Node previous;
+    }
+
     /** The metric to be used by this algorithm */
-    private Metric<?> metric;
+    private Metric<?>                    metric;
+
+    /** The metric used for subsets of the quasi-identifiers */
+    private Metric<?>                    subsetMetric;
+
+    /** The checkers, one per worker */
+    private final IncognitoNodeChecker[] checkers;
 
     /**
      * Instantiates a new incognito algorithm.
@@ -68,25 +102,95 @@ public class AlgorithmIncognito extends AbstractBenchmarkAlgorithm {
                               int historySize,
                               double snapshotSizeDataset,
                               double snapshotSizeSnapshot) {
-        this(lattice, metric, new IncognitoNodeChecker(manager,
-                                                       Metric.createHeightMetric(),
-                                                       config,
-                                                       historySize,
-                                                       snapshotSizeDataset,
-                                                       snapshotSizeSnapshot));
+        this(lattice, manager, metric, config, historySize, snapshotSizeDataset, snapshotSizeSnapshot, 1);
+    }
+
+    /**
+     * Instantiates a new incognito algorithm, which processes subsets of the same size
+     * with the given number of workers.
+     * @param lattice
+     * @param manager
+     * @param metric
+     * @param config
+     * @param historySize
+     * @param snapshotSizeDataset
+     * @param snapshotSizeSnapshot
+     * @param workers
+     */
+    public AlgorithmIncognito(Lattice lattice,
+                              DataManager manager,
+                              Metric<?> metric,
+                              ARXConfigurationInternal config,
+                              int historySize,
+                              double snapshotSizeDataset,
+                              double snapshotSizeSnapshot,
+                              int workers) {
+        this(lattice, metric, getCheckers(manager,
+                                          config,
+                                          historySize,
+                                          snapshotSizeDataset,
+                                          snapshotSizeSnapshot,
+                                          workers));
     }
 
     /**
      * Instantiates a new incognito algorithm.
      * 
      * @param lattice the lattice
-     * @param checker the checker
+     * @param checkers the checkers
      */
-    private AlgorithmIncognito(Lattice lattice, Metric<?> metric, INodeChecker checker) {
-        super(lattice, checker);
+    private AlgorithmIncognito(Lattice lattice, Metric<?> metric, IncognitoNodeChecker[] checkers) {
+        super(lattice, checkers[0]);
         this.metric = metric;
+        this.subsetMetric = checkers[0].getMetric();
+        this.checkers = checkers;
         // Set strategy
-        checker.getHistory().setStorageTrigger(History.STORAGE_TRIGGER_ALL);
+        for (IncognitoNodeChecker checker : checkers) {
+            checker.getHistory().setStorageTrigger(History.STORAGE_TRIGGER_ALL);
+        }
+    }
+
+    /**
+     * Creates the checkers, each with its own copy of the metric used for subsets of the
+     * quasi-identifiers. The time spent evaluating the copies is added to the first one.
+     * @param manager
+     * @param config
+     * @param historySize
+     * @param snapshotSizeDataset
+     * @param snapshotSizeSnapshot
+     * @param workers
+     * @return
+     */
+    private static IncognitoNodeChecker[] getCheckers(DataManager manager,
+                                                      ARXConfigurationInternal config,
+                                                      int historySize,
+                                                      double snapshotSizeDataset,
+                                                      double snapshotSizeSnapshot,
+                                                      int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Number of workers must be positive");
+        }
+        TimedMetric<?> subsetMetric = TimedMetric.create(Metric.createHeightMetric());
+        IncognitoNodeChecker[] checkers = new IncognitoNodeChecker[workers];
+        for (int i = 0; i < workers; i++) {
+            checkers[i] = new IncognitoNodeChecker(manager,
+                                                   i == 0 ? subsetMetric : subsetMetric.copy(),
+                                                   config,
+                                                   historySize,
+                                                   snapshotSizeDataset,
+                                                   snapshotSizeSnapshot);
+        }
+        return checkers;
+    }
+
+    /**
+     * Returns the time spent evaluating the metric and the metric used for subsets
+     * of the quasi-identifiers, if they are {@link TimedMetric}s
+     * @return
+     */
+    @Override
+    public long getMetricTime() {
+        return getTime(metric) + getTime(subsetMetric);
     }
 
     /*
@@ -98,49 +202,63 @@ public class AlgorithmIncognito extends AbstractBenchmarkAlgorithm {
     public void traverse() {
 
         // Prepare
-        IncognitoLattice globalLattice = new IncognitoLattice(super.lattice, hierarchyHeights);
-        IncognitoNodeChecker checker = (IncognitoNodeChecker) super.checker;
+        final IncognitoLattice globalLattice = new IncognitoLattice(super.lattice, hierarchyHeights);
         int numQIs = hierarchyHeights.length;
         Set<Set<Integer>>[] combinations = getCombinations(numQIs);
-        IncognitoContext context = new IncognitoContext();
-
-        // For subset of QIs of any possible size
-        for (int i = 0; i < numQIs; i++) {
+        final IncognitoContext context = new IncognitoContext();
+        ExecutorService pool = checkers.length > 1 ? Executors.newFixedThreadPool(checkers.length, threads) : null;
+        final BlockingQueue<IncognitoNodeChecker> available = new LinkedBlockingQueue<IncognitoNodeChecker>(Arrays.asList(checkers));
 
-            // Obtain all combinations for this size
-            Set<Set<Integer>> combination = combinations[i];
+        try {
 
-            // For each combination
-            for (Set<Integer> _combination : combination) {
+            // For subset of QIs of any possible size
+            for (int i = 0; i < numQIs; i++) {
 
-                // Create ordered subset
-                int[] subset = getOrderedArray(_combination);
-
-                // Use a special lattice for any subset of the QIs and the main lattice for all QIs
+                // Use the main lattice and the actually specified metric for all QIs
                 if (i == numQIs - 1) {
-                    context.setLattice(globalLattice);
-                } else {
-                    context.setLattice(getLattice(subset));
+                    checkers[0].setMetric(this.metric);
+                    process(globalLattice, globalLattice, checkers[0], context, getOrderedArray(combinations[i].iterator().next()));
+                    break;
                 }
 
-                // Reset previous node for counting roll-ups correctly
-                previous = null;
-
-                // Tell the node checker about the subset
-                checker.setActiveColumns(subset);
-
-                // Prune nodes that can not be anonymous due to results from previous runs
-                if (i > 0) {
-                    prune(context, subset);
+                // Obtain all ordered subsets of this size
+                List<int[]> subsets = new ArrayList<int[]>();
+                for (Set<Integer> _combination : combinations[i]) {
+                    subsets.add(getOrderedArray(_combination));
                 }
 
-                // During the last iteration use the actually specified metric
-                if (i == numQIs - 1) {
-                    checker.setMetric(this.metric);
+                // Process all subsets, each with a special lattice
+                List<IncognitoContext> results = new ArrayList<IncognitoContext>();
+                if (pool == null) {
+                    for (int[] subset : subsets) {
+                        results.add(process(globalLattice, getLattice(subset), checkers[0], context, subset));
+                    }
+                } else {
+                    List<Callable<IncognitoContext>> tasks = new ArrayList<Callable<IncognitoContext>>();
+                    for (final int[] subset : subsets) {
+                        tasks.add(new Callable<IncognitoContext>() {
+                            @Override
+                            public IncognitoContext call() throws InterruptedException {
+                                IncognitoNodeChecker checker = available.take();
+                                try {
+                                    return process(globalLattice, getLattice(subset), checker, context, subset);
+                                } finally {
+                                    available.add(checker);
+                                }
+                            }
+                        });
+                    }
+                    results = invokeAll(pool, tasks);
                 }
 
-                // Perform a breath first search over current sub-lattice
-                bfs(globalLattice, checker, context, subset);
+                // Collect non-anonymous transformations in the order of the subsets
+                for (IncognitoContext result : results) {
+                    context.addAll(result);
+                }
+            }
+        } finally {
+            if (pool != null) {
+                threads.shutdown(pool);
             }
         }
     }
@@ -152,31 +270,35 @@ public class AlgorithmIncognito extends AbstractBenchmarkAlgorithm {
      * @param checker
      * @param context
      * @param subset
-     * @param representative
+     * @param statistics
      */
     private void bfs(IncognitoLattice globalLattice,
                      IncognitoNodeChecker checker,
                      IncognitoContext context,
-                     int[] subset) {
+                     int[] subset,
+                     Statistics statistics) {
 
         // For each level
+        Lattice localLattice = context.getLocalLattice();
         for (Node[] localLevels : context.getLevels()) {
 
             // For each transformation
             for (Node localNode : localLevels) {
 
                 // If it is not tagged already
-                if (!isTagged(localNode)) {
+                if (!isTagged(localLattice, localNode)) {
 
                     // Expand local representation to global representation
                     Node globalNode = getGlobalNode(globalLattice, subset, localNode);
 
                     // Check
-                    context.getLocalLattice().setChecked(localNode, check(checker, globalNode));
-                    tag(context.getLocalLattice(), localNode);
+                    setChecked(localLattice, localNode, check(checker, globalNode, statistics));
+                    tag(localLattice, localNode);
 
-                    // And tag
-                    if (!isAnonymous(localNode)) {
+                    // And tag. Without monotonicity, only transformations that are not
+                    // k-anonymous can be used to prune supersets of the subset.
+                    if (!isAnonymous(localLattice, localNode) &&
+                        (isMonotonic() || hasProperty(localLattice, localNode, Node.PROPERTY_NOT_K_ANONYMOUS))) {
                         context.getNonAnonymousNodes().add(localNode);
                         context.getNonAnonymousTransformations().add(subset);
                     }
@@ -191,36 +313,30 @@ public class AlgorithmIncognito extends AbstractBenchmarkAlgorithm {
     }
 
     /**
-     * Checks a node
+     * Checks a node. The checker writes the information loss of the node, which may be a node
+     * of the global lattice that is checked for other subsets at the same time. Checks of the
+     * same node are therefore serialized.
      * 
      * @param checker
      * @param node
+     * @param statistics
      */
-    private Result check(NodeChecker checker, Node node) {
-
-        Result result = checker.check(node);
-        checks++;
+    private Result check(NodeChecker checker, Node node, Statistics statistics) {
 
-        // Store
-        if (previous == null) {
-            previous = node;
-            return result;
-        }
-
-        // Check if successor
-        boolean successor = true;
-        for (int i = 0; i < node.getTransformation().length; i++) {
-            if (node.getTransformation()[i] < previous.getTransformation()[i]) {
-                successor = false;
-            }
+        checkDeadline();
+        long time = System.nanoTime();
+        Result result;
+        synchronized (node) {
+            result = checker.check(node);
         }
-
-        previous = node;
+        statistics.checkTime += System.nanoTime() - time;
+        statistics.checks++;
 
         // Count
-        if (successor) {
-            rollups++;
+        if (statistics.previous != null && isSuccessor(node, statistics.previous)) {
+            statistics.rollups++;
         }
+        statistics.previous = node;
 
         // Return
         return result;
@@ -364,16 +480,61 @@ public class AlgorithmIncognito extends AbstractBenchmarkAlgorithm {
         return isSuperset;
     }
 
+    /**
+     * Processes a subset of the quasi-identifiers. Non-anonymous transformations from previous
+     * iterations are read from the given context, which is not modified. Non-anonymous
+     * transformations of the subset are returned in a new context.
+     * 
+     * @param globalLattice
+     * @param lattice
+     * @param checker
+     * @param previous
+     * @param subset
+     * @return
+     */
+    private IncognitoContext process(IncognitoLattice globalLattice,
+                                     IncognitoLattice lattice,
+                                     IncognitoNodeChecker checker,
+                                     IncognitoContext previous,
+                                     int[] subset) {
+
+        // Prepare, with fresh counters for counting roll-ups correctly
+        IncognitoContext context = new IncognitoContext();
+        context.setLattice(lattice);
+        Statistics statistics = new Statistics();
+
+        // Tell the node checker about the subset
+        checker.setActiveColumns(subset);
+
+        // Prune nodes that can not be anonymous due to results from previous runs
+        if (subset.length > 1) {
+            prune(previous, context, subset);
+        }
+
+        // Perform a breath first search over current sub-lattice
+        try {
+            bfs(globalLattice, checker, context, subset, statistics);
+        } finally {
+            synchronized (this) {
+                checks += statistics.checks;
+                rollups += statistics.rollups;
+                checkTime += statistics.checkTime;
+            }
+        }
+        return context;
+    }
+
     /**
      * Prunes parts of the new search space, based on results from previous iterations
+     * @param previous
      * @param context
      * @param currentSubset
      */
-    private void prune(IncognitoContext context, int[] currentSubset) {
+    private void prune(IncognitoContext previous, IncognitoContext context, int[] currentSubset) {
 
         // Prepare
-        ArrayList<Node> nodes = context.getNonAnonymousNodes();
-        ArrayList<int[]> transformations = context.getNonAnonymousTransformations();
+        ArrayList<Node> nodes = previous.getNonAnonymousNodes();
+        ArrayList<int[]> transformations = previous.getNonAnonymousTransformations();
 
         // For each transformation that was determined to be non-anonymous previously
         for (int i = 0; i < nodes.size(); i++) {
@@ -401,6 +562,9 @@ public class AlgorithmIncognito extends AbstractBenchmarkAlgorithm {
                 // Tag
                 Node localNode = context.getLocalMap().get(localTransformation);
                 setAnonymous(context.getLocalLattice(), localNode, false);
+                if (!isMonotonic()) {
+                    setProperty(context.getLocalLattice(), localNode, Node.PROPERTY_NOT_K_ANONYMOUS);
+                }
                 tag(context.getLocalLattice(), localNode);
             }
         }
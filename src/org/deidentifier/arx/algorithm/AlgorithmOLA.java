@@ -126,7 +126,10 @@ public class AlgorithmOLA extends AbstractBenchmarkAlgorithm {
     }
 
     /**
-     * Performs tagging and housekeeping
+     * Performs tagging and housekeeping. Without monotonicity, only transformations
+     * that are not k-anonymous are propagated, see {@link #setMonotonic(boolean)}. Anonymous
+     * transformations are only propagated if the metric is monotonic as well, see
+     * {@link #setMetricMonotonic(boolean)}.
      * 
      * @param node the node
      * @param anonymous the anonymous
@@ -134,10 +137,12 @@ public class AlgorithmOLA extends AbstractBenchmarkAlgorithm {
     private void doTag(final Node node, final boolean anonymous) {
 
         // Tag
-        if (anonymous) {
-            lattice.setProperty(node, Node.PROPERTY_ANONYMOUS | Node.PROPERTY_SUCCESSORS_PRUNED);
+        if (anonymous && isPruningSuccessors()) {
+            setProperty(node, Node.PROPERTY_ANONYMOUS | Node.PROPERTY_SUCCESSORS_PRUNED);
+        } else if (anonymous) {
+            setProperty(node, Node.PROPERTY_ANONYMOUS);
         } else {
-            lattice.setProperty(node, Node.PROPERTY_NOT_ANONYMOUS);
+            setProperty(node, Node.PROPERTY_NOT_ANONYMOUS);
         }
 
         untagged[node.getLevel()]--;
@@ -147,14 +152,23 @@ public class AlgorithmOLA extends AbstractBenchmarkAlgorithm {
 
         // Traverse
         if (anonymous) {
+            if (!isPruningSuccessors()) {
+                return;
+            }
             for (final Node up : node.getSuccessors()) {
                 if (!isTagged(up)) {
                     doTag(up, anonymous);
                 }
             }
         } else {
+            if (!isMonotonic() && !hasProperty(node, Node.PROPERTY_NOT_K_ANONYMOUS)) {
+                return;
+            }
             for (final Node down : node.getPredecessors()) {
                 if (!isTagged(down)) {
+                    if (!isMonotonic()) {
+                        setProperty(down, Node.PROPERTY_NOT_K_ANONYMOUS);
+                    }
                     doTag(down, anonymous);
                 }
             }
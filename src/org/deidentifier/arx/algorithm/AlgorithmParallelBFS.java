@@ -0,0 +1,136 @@
+/*
+ * Source code of our CBMS 2014 paper "A benchmark of globally-optimal
+ *      methods for the de-identification of biomedical data"
+ *
+ * Copyright (C) 2014 Florian Kohlmayer, Fabian Prasser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.deidentifier.arx.algorithm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.deidentifier.arx.framework.check.INodeChecker;
+import org.deidentifier.arx.framework.check.history.History;
+import org.deidentifier.arx.framework.lattice.Lattice;
+import org.deidentifier.arx.framework.lattice.Node;
+
+/**
+ * This class implements a level-synchronous parallel breadth-first-search. The untagged
+ * nodes of each level are checked concurrently by a set of workers, each of which uses its
+ * own checker. As nodes on the same level are neither predecessors nor successors of each
+ * other, results are merged and tags are propagated between levels, which results in the
+ * same checks as {@link AlgorithmBFS}. Roll-ups are counted per worker.
+ *
+ * @author Fabian Prasser
+ */
+public class AlgorithmParallelBFS extends AbstractBenchmarkAlgorithm {
+
+    /** The checkers, one per worker */
+    private final INodeChecker[] checkers;
+
+    /**
+     * Creates a new instance of the parallel breadth-first algorithm.
+     *
+     * @param lattice The lattice
+     * @param checkers The checkers, one per worker, which must not share any state but the input
+     */
+    public AlgorithmParallelBFS(final Lattice lattice, final INodeChecker[] checkers) {
+        super(lattice, checkers[0], new NodeProperties(lattice));
+        this.checkers = checkers;
+        // Set strategy
+        for (INodeChecker checker : checkers) {
+            checker.getHistory().setStorageTrigger(History.STORAGE_TRIGGER_ALL);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.deidentifier.arx.algorithm.AbstractAlgorithm#traverse()
+     */
+    @Override
+    public void traverse() {
+
+        ExecutorService pool = Executors.newFixedThreadPool(checkers.length, threads);
+        try {
+
+            // For each level
+            final int length = lattice.getLevels().length;
+            for (int i = 0; i < length; i++) {
+                final Node[] level = lattice.getLevels()[i];
+
+                // Collect untagged nodes
+                final List<Node> nodes = new ArrayList<Node>();
+                for (final Node node : level) {
+                    if (!isTagged(node)) {
+                        nodes.add(node);
+                    }
+                }
+
+                // Check concurrently
+                final INodeChecker.Result[] results = new INodeChecker.Result[nodes.size()];
+                final AtomicInteger next = new AtomicInteger();
+                List<Callable<long[]>> tasks = new ArrayList<Callable<long[]>>();
+                for (final INodeChecker worker : checkers) {
+                    tasks.add(new Callable<long[]>() {
+                        @Override
+                        public long[] call() {
+                            long time = 0L;
+                            long rollups = 0L;
+                            Node previous = null;
+                            for (int index = next.getAndIncrement(); index < results.length; index = next.getAndIncrement()) {
+                                checkDeadline();
+                                Node node = nodes.get(index);
+                                long start = System.nanoTime();
+                                results[index] = worker.check(node);
+                                time += System.nanoTime() - start;
+                                if (previous != null && isSuccessor(node, previous)) {
+                                    rollups++;
+                                }
+                                previous = node;
+                            }
+                            return new long[] { time, rollups };
+                        }
+                    });
+                }
+                for (long[] statistics : invokeAll(pool, tasks)) {
+                    checkTime += statistics[0];
+                    rollups += (int) statistics[1];
+                }
+
+                // Merge results in the order of the level
+                for (int index = 0; index < results.length; index++) {
+                    Node node = nodes.get(index);
+                    setChecked(node, results[index]);
+                    trackOptimum(node);
+                    checks++;
+                }
+
+                // Propagate tags
+                for (Node node : nodes) {
+                    tag(node);
+                }
+            }
+        } finally {
+            threads.shutdown(pool);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * Source code of our CBMS 2014 paper "A benchmark of globally-optimal
+ *      methods for the de-identification of biomedical data"
+ *
+ * Copyright (C) 2014 Florian Kohlmayer, Fabian Prasser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.deidentifier.arx.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.deidentifier.arx.framework.check.INodeChecker;
+import org.deidentifier.arx.framework.check.history.History;
+import org.deidentifier.arx.framework.data.GeneralizationHierarchy;
+import org.deidentifier.arx.framework.lattice.Lattice;
+import org.deidentifier.arx.framework.lattice.Node;
+
+/**
+ * This class implements a parallel variant of the FLASH algorithm. The levels of the
+ * lattice are processed one after another. Within a level, several workers poll heads
+ * from a shared priority queue, greedily build paths of nodes that are neither tagged
+ * nor claimed by other workers and check them with a binary search, each worker with
+ * its own checker and history. The heap and the claims are guarded by a single lock, which
+ * is not held while checking. Tags are shared without the lock. A level is rescanned until
+ * all of its nodes are tagged.<br>
+ * <br>
+ * As all minimal anonymous transformations are checked, the global optimum is the same
+ * as the one found by {@link AlgorithmFlash}. The optimum is tracked while holding the lock,
+ * in the order in which nodes are checked, so that ties are broken like in the sequential
+ * variant, which keeps the first node checked.
+ *
+ * @author Fabian Prasser
+ */
+public class AlgorithmParallelFlash extends AbstractBenchmarkAlgorithm {
+
+    /** The checkers, one per worker */
+    private final INodeChecker[] checkers;
+
+    /** The heap, guarded by the lock. */
+    private final PriorityQueue<Node> pqueue;
+
+    /** Nodes on paths that are currently being checked, guarded by the lock. */
+    private final boolean[]           claimed;
+
+    /** Sorted copies of the upwards pointers of the node with id 'index', guarded by the lock. */
+    private final Node[][]            successors;
+
+    /** The number of workers checking a path, guarded by the lock. */
+    private int                       active;
+
+    /** The lock. */
+    private final Object              lock = new Object();
+
+    /** The strategy. */
+    private final FLASHStrategy       strategy;
+
+    /**
+     * Creates a new instance of the parallel FLASH algorithm.
+     *
+     * @param lattice The lattice
+     * @param checkers The checkers, one per worker, which must not share any state but the input
+     * @param hierarchies The hierarchies
+     */
+    public AlgorithmParallelFlash(final Lattice lattice,
+                                  final INodeChecker[] checkers,
+                                  final GeneralizationHierarchy[] hierarchies) {
+
+        super(lattice, checkers[0], new NodeProperties(lattice));
+        this.checkers = checkers;
+        this.strategy = new FLASHStrategy(lattice, hierarchies);
+        this.pqueue = new PriorityQueue<Node>(11, strategy);
+        this.claimed = new boolean[lattice.getSize()];
+        this.successors = new Node[lattice.getSize()][];
+        // Set strategy
+        for (INodeChecker checker : checkers) {
+            checker.getHistory().setStorageTrigger(History.STORAGE_TRIGGER_NON_ANONYMOUS);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.deidentifier.ARX.algorithm.AbstractAlgorithm#traverse()
+     */
+    @Override
+    public void traverse() {
+
+        // Init
+        pqueue.clear();
+        ExecutorService pool = Executors.newFixedThreadPool(checkers.length, threads);
+        try {
+
+            // For each level
+            final int length = lattice.getLevels().length;
+            for (int i = 0; i < length; i++) {
+
+                // Until all nodes are tagged
+                Node[] level = this.sort(i);
+                while (level.length > 0) {
+                    pqueue.addAll(Arrays.asList(level));
+                    List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+                    for (final INodeChecker worker : checkers) {
+                        tasks.add(new Callable<Void>() {
+                            @Override
+                            public Void call() {
+                                work(worker);
+                                return null;
+                            }
+                        });
+                    }
+                    invokeAll(pool, tasks);
+                    level = this.sort(i);
+                }
+            }
+        } finally {
+            threads.shutdown(pool);
+        }
+    }
+
+    /**
+     * Checks a path binary.
+     *
+     * @param worker The checker of the worker
+     * @param path The path
+     * @param previous The node checked previously by the worker
+     * @return The node checked last by the worker
+     */
+    private final Node checkPathBinary(final INodeChecker worker, final List<Node> path, Node previous) {
+        int low = 0;
+        int high = path.size() - 1;
+
+        while (low <= high) {
+
+            final int mid = (low + high) >>> 1;
+            final Node node = path.get(mid);
+
+            if (!isTagged(node)) {
+
+                // Check
+                checkDeadline();
+                long time = System.nanoTime();
+                INodeChecker.Result result = worker.check(node);
+                time = System.nanoTime() - time;
+
+                // Store and tag
+                setChecked(node, result);
+                tag(node);
+                synchronized (lock) {
+                    trackOptimum(node);
+                    checkTime += time;
+                    checks++;
+                    if (previous != null && isSuccessor(node, previous)) {
+                        rollups++;
+                    }
+                    if (!isAnonymous(node)) {
+                        for (final Node up : node.getSuccessors()) {
+                            if (!isTagged(up)) {
+                                pqueue.add(up);
+                            }
+                        }
+                        lock.notifyAll();
+                    }
+                }
+                previous = node;
+            }
+
+            if (isAnonymous(node)) {
+                high = mid - 1;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return previous;
+    }
+
+    /**
+     * Greedily find a path of nodes that are neither tagged nor claimed and claims them.
+     * Must be called while holding the lock.
+     *
+     * @param current The current
+     * @param path The path
+     */
+    private final void findPath(Node current, final List<Node> path) {
+        path.clear();
+        path.add(current);
+        claimed[current.id] = true;
+        boolean found = true;
+        while (found) {
+            found = false;
+            for (final Node candidate : this.sort(current)) {
+                if (!isTagged(candidate) && !claimed[candidate.id]) {
+                    current = candidate;
+                    path.add(candidate);
+                    claimed[candidate.id] = true;
+                    found = true;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sorts a level.
+     *
+     * @param level
+     *            The level
+     * @return the node[]
+     */
+    private final Node[] sort(final int level) {
+
+        // Create
+        List<Node> result = new ArrayList<Node>();
+        Node[] nlevel = lattice.getLevels()[level];
+        for (Node n : nlevel) {
+            if (!isTagged(n)) {
+                result.add(n);
+            }
+        }
+
+        // Sort
+        Node[] resultArray = result.toArray(new Node[result.size()]);
+        Arrays.sort(resultArray, strategy);
+        return resultArray;
+    }
+
+    /**
+     * Returns a sorted copy of the upwards pointers of a node. The pointers of the lattice
+     * are not modified, as they are read by other workers while propagating tags. Must be
+     * called while holding the lock.
+     *
+     * @param current
+     *            The current
+     * @return the node[]
+     */
+    private final Node[] sort(final Node current) {
+        if (successors[current.id] == null) {
+            Node[] result = current.getSuccessors().clone();
+            Arrays.sort(result, strategy);
+            successors[current.id] = result;
+        }
+        return successors[current.id];
+    }
+
+    /**
+     * Polls heads and checks their paths until the heap is empty and no other
+     * worker may add further heads
+     *
+     * @param worker The checker of the worker
+     */
+    private void work(final INodeChecker worker) {
+        List<Node> path = new ArrayList<Node>();
+        Node previous = null;
+        while (true) {
+
+            // Poll a head and claim its path
+            synchronized (lock) {
+                while (pqueue.isEmpty() && active > 0) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException("Interrupted while waiting for heads", e);
+                    }
+                }
+                if (pqueue.isEmpty()) {
+                    return;
+                }
+                Node head = pqueue.poll();
+                if (isTagged(head) || claimed[head.id]) {
+                    continue;
+                }
+                findPath(head, path);
+                active++;
+            }
+
+            // Check the path and release it
+            try {
+                previous = checkPathBinary(worker, path, previous);
+            } finally {
+                synchronized (lock) {
+                    for (Node node : path) {
+                        claimed[node.id] = false;
+                    }
+                    active--;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+}
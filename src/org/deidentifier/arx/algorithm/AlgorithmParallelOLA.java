@@ -0,0 +1,482 @@
+/*
+ * Source code of our CBMS 2014 paper "A benchmark of globally-optimal
+ *      methods for the de-identification of biomedical data"
+ *
+ * Copyright (C) 2014 Florian Kohlmayer, Fabian Prasser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.deidentifier.arx.algorithm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ManagedBlocker;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+
+import org.deidentifier.arx.framework.check.INodeChecker;
+import org.deidentifier.arx.framework.check.history.History;
+import org.deidentifier.arx.framework.lattice.Lattice;
+import org.deidentifier.arx.framework.lattice.Node;
+
+/**
+ * This class implements a fork/join variant of {@link AlgorithmOLA}. The recursive calls of
+ * kmin() are forked as tasks as soon as their mid node has been processed, and joined before
+ * the calling sublattice is completed. Memoization uses a concurrent set of pairs of nodes,
+ * so that each sublattice is forked at most once. Tags are shared without a lock, while level
+ * counts, the level mask and tagging itself are guarded by a single lock, which is not held
+ * while checking. Concurrent attempts to check
+ * the same node wait for the first one. Checks are performed with a pool of checkers, one per
+ * thread of the fork/join pool. Both waits are managed blocks, so that the pool can activate
+ * further threads to execute forked tasks in the meantime.<br>
+ * <br>
+ * Nodes are checked under the same conditions as in {@link AlgorithmOLA}. When a node is
+ * tagged again, e.g. after re-checking an anonymous node at the bottom of a sublattice, it
+ * is not counted again in the number of untagged nodes of its level. The optimum is tracked
+ * while holding the lock, in the order in which nodes are checked, so that ties are broken
+ * like in the sequential variant, which keeps the first node checked.
+ *
+ * @author Fabian Prasser
+ */
+public class AlgorithmParallelOLA extends AbstractBenchmarkAlgorithm {
+
+    /**
+     * A recursive call of kmin()
+     */
+    private class KMin extends RecursiveAction {
+
+        /** SVUID */
+        private static final long serialVersionUID = -4312585419627291826L;
+
+        /** The bottom */
+        private final Node        bottom;
+        /** The top */
+        private final Node        top;
+
+        /**
+         * Creates a new task
+         *
+         * @param bottom
+         * @param top
+         */
+        KMin(Node bottom, Node top) {
+            this.bottom = bottom;
+            this.top = top;
+        }
+
+        @Override
+        protected void compute() {
+            kmin(bottom, top);
+        }
+    }
+
+    /**
+     * Waits until a node is no longer claimed by another check
+     */
+    private class Release implements ManagedBlocker {
+
+        /** The node */
+        private final Node node;
+
+        /**
+         * Creates a new blocker
+         *
+         * @param node
+         */
+        Release(Node node) {
+            this.node = node;
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+            synchronized (lock) {
+                while (claimed[node.id]) {
+                    lock.wait();
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            synchronized (lock) {
+                return !claimed[node.id];
+            }
+        }
+    }
+
+    /**
+     * Waits until a checker is available
+     */
+    private class Take implements ManagedBlocker {
+
+        /** The index of the checker taken, null if none has been taken yet */
+        private Integer index;
+
+        @Override
+        public boolean block() throws InterruptedException {
+            if (index == null) {
+                index = available.take();
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            if (index == null) {
+                index = available.poll();
+            }
+            return index != null;
+        }
+    }
+
+    /** The checkers, one per thread */
+    private final INodeChecker[]          checkers;
+
+    /** The indices of the checkers that are currently not in use. */
+    private final BlockingQueue<Integer>  available;
+
+    /** The node checked previously by each checker, guarded by the lock. */
+    private final Node[]                  previous;
+
+    /** The memoized sublattices, as pairs of top and bottom. */
+    private final Set<Long>               memoization;
+
+    /** Nodes that are currently being checked, guarded by the lock. */
+    private final boolean[]               claimed;
+
+    /** The lock. */
+    private final Object                  lock = new Object();
+
+    /** The levelmask, guarded by the lock. */
+    private long                          levelmask;
+
+    /** The map. */
+    private final NodeMap                 map;
+
+    /** The untagged count, guarded by the lock. */
+    private final int[]                   untagged;
+
+    /** Nodes that have been counted as tagged, guarded by the lock. */
+    private final boolean[]               counted;
+
+    /**
+     * Instantiates a new fork/join OLA algorithm.
+     *
+     * @param lattice the lattice
+     * @param checkers the checkers, one per thread, which must not share any state but the input
+     */
+    public AlgorithmParallelOLA(final Lattice lattice, final INodeChecker[] checkers) {
+
+        super(lattice, checkers[0], new NodeProperties(lattice));
+        this.checkers = checkers;
+        this.available = new LinkedBlockingQueue<Integer>();
+        for (int i = 0; i < checkers.length; i++) {
+            available.add(i);
+        }
+        this.previous = new Node[checkers.length];
+        this.memoization = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+        this.claimed = new boolean[lattice.getSize()];
+        this.counted = new boolean[lattice.getSize()];
+
+        // Init the map
+        map = new NodeMap(hierarchyHeights);
+        final Node[][] levels = lattice.getLevels();
+        for (int i = 0; i < levels.length; i++) {
+            final Node[] nodes = levels[i];
+            for (int j = 0; j < nodes.length; j++) {
+                map.put(nodes[j].getTransformation(), nodes[j]);
+            }
+        }
+
+        untagged = new int[lattice.getLevels().length];
+        for (int i = 0; i < lattice.getLevels().length; i++) {
+            untagged[i] = lattice.getLevels()[i].length;
+        }
+
+        // Set strategy
+        for (INodeChecker checker : checkers) {
+            checker.getHistory().setStorageTrigger(History.STORAGE_TRIGGER_NON_ANONYMOUS);
+        }
+    }
+
+    /**
+     * Checks the lattice.
+     */
+    @Override
+    public void traverse() {
+
+        final int maxindex = lattice.getLevels().length - 1;
+        ForkJoinPool pool = new ForkJoinPool(checkers.length, threads, null, false);
+        try {
+            Node bottom = lattice.getLevels()[0][0];
+            Node top = lattice.getLevels()[maxindex][0];
+            memoization.add(getKey(bottom, top));
+            pool.invoke(new KMin(bottom, top));
+        } finally {
+            threads.shutdown(pool);
+        }
+    }
+
+    /**
+     * Checks and tags the node, if the given condition holds after all concurrent
+     * checks of the node have completed
+     *
+     * @param node
+     * @param leaf If true, the node is checked unless it is known not to be anonymous,
+     *             otherwise it is checked if it is not tagged
+     */
+    private void checkAndTag(final Node node, final boolean leaf) {
+
+        // Claim
+        while (true) {
+            synchronized (lock) {
+                if (!claimed[node.id]) {
+                    boolean required = leaf ? !(isTagged(node) && !isAnonymous(node)) : !isTagged(node);
+                    if (!required) {
+                        return;
+                    }
+                    claimed[node.id] = true;
+                    break;
+                }
+            }
+            block(new Release(node), "Interrupted while waiting for a check");
+        }
+
+        try {
+
+            // Check with an available checker
+            checkDeadline();
+            int index = take();
+            INodeChecker.Result result;
+            long time = System.nanoTime();
+            try {
+                result = checkers[index].check(node);
+            } finally {
+                time = System.nanoTime() - time;
+                available.add(index);
+            }
+
+            // Store and tag
+            setChecked(node, result);
+            synchronized (lock) {
+                trackOptimum(node);
+                checkTime += time;
+                checks++;
+                if (previous[index] != null && isSuccessor(node, previous[index])) {
+                    rollups++;
+                }
+                previous[index] = node;
+                doTag(node, isAnonymous(node));
+            }
+        } finally {
+
+            // Release
+            synchronized (lock) {
+                claimed[node.id] = false;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Performs tagging and housekeeping. Must be called while holding the lock.
+     * Without monotonicity, only transformations that are not k-anonymous are
+     * propagated, see {@link #setMonotonic(boolean)}. Anonymous transformations are
+     * only propagated if the metric is monotonic as well, see {@link #setMetricMonotonic(boolean)}.
+     *
+     * @param node the node
+     * @param anonymous the anonymous
+     */
+    private void doTag(final Node node, final boolean anonymous) {
+
+        // Count, if not tagged before
+        if (!counted[node.id]) {
+            counted[node.id] = true;
+            untagged[node.getLevel()]--;
+            if (untagged[node.getLevel()] == 0) {
+                levelmask |= 1L << node.getLevel();
+            }
+        }
+
+        // Tag
+        if (anonymous && isPruningSuccessors()) {
+            setProperty(node, Node.PROPERTY_ANONYMOUS | Node.PROPERTY_SUCCESSORS_PRUNED);
+        } else if (anonymous) {
+            setProperty(node, Node.PROPERTY_ANONYMOUS);
+        } else {
+            setProperty(node, Node.PROPERTY_NOT_ANONYMOUS);
+        }
+
+        // Traverse
+        if (anonymous) {
+            if (!isPruningSuccessors()) {
+                return;
+            }
+            for (final Node up : node.getSuccessors()) {
+                if (!isTagged(up)) {
+                    doTag(up, anonymous);
+                }
+            }
+        } else {
+            if (!isMonotonic() && !hasProperty(node, Node.PROPERTY_NOT_K_ANONYMOUS)) {
+                return;
+            }
+            for (final Node down : node.getPredecessors()) {
+                if (!isTagged(down)) {
+                    if (!isMonotonic()) {
+                        setProperty(down, Node.PROPERTY_NOT_K_ANONYMOUS);
+                    }
+                    doTag(down, anonymous);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the key of a sublattice for memoization
+     *
+     * @param bottom
+     * @param top
+     * @return
+     */
+    private Long getKey(final Node bottom, final Node top) {
+        return (long) top.id * lattice.getSize() + bottom.id;
+    }
+
+    /**
+     * Kmin()
+     *
+     * @param bottom
+     *            the bottom
+     * @param top
+     *            the top
+     */
+    private void kmin(final Node bottom, final Node top) {
+
+        if ((top.getLevel() - bottom.getLevel()) > 1) {
+
+            final int midLevel = (top.getLevel() + bottom.getLevel()) / 2;
+
+            List<KMin> tasks = new ArrayList<KMin>();
+            Iterator<Node> iter = null;
+            iter = new OLASublatticeIterator(map, bottom, top, midLevel);
+            while (iter.hasNext()) {
+                final Node mid = iter.next();
+                processMidNode(bottom, top, mid, tasks);
+            }
+
+            // Join
+            for (KMin task : tasks) {
+                task.join();
+            }
+        } else { // topLevel - bottomLevel <= 1
+            checkAndTag(bottom, true);
+        }
+    }
+
+    /**
+     * Check whether the sublattice needs to be processed
+     *
+     * @param top the top
+     * @param bottom the bottom
+     * @return true, if successful
+     */
+    private boolean levelsNotPruned(final int top, final int bottom) {
+        final long mask = ((2L << top) - 1L) ^ ((2L << (bottom)) - 1L) ^ (1L << top);
+        synchronized (lock) {
+            if ((mask & levelmask) == mask) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Processes a mid node. Recursive calls are forked and added to the given list.
+     *
+     * @param bottom the bottom
+     * @param top the top
+     * @param mid the mid
+     * @param tasks the forked tasks
+     */
+    private void processMidNode(final Node bottom,
+                                final Node top,
+                                final Node mid,
+                                final List<KMin> tasks) {
+
+        checkAndTag(mid, false);
+
+        Node newTop = null;
+        Node newBottom = null;
+
+        if (isAnonymous(mid)) {
+            newTop = mid;
+            newBottom = bottom;
+        } else {
+            newTop = top;
+            newBottom = mid;
+        }
+
+        Long key = getKey(newBottom, newTop);
+        if (!memoization.contains(key)) {
+            if (levelsNotPruned(newTop.getLevel(), newBottom.getLevel())) {
+                if (memoization.add(key)) {
+                    KMin task = new KMin(newBottom, newTop);
+                    task.fork();
+                    tasks.add(task);
+                }
+            } else {
+                if (!isTagged(newBottom)) {
+                    checkAndTag(newBottom, false);
+                } else if (!isTagged(newTop)) {
+                    checkAndTag(newTop, false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Blocks the current thread, so that the pool can compensate for it
+     *
+     * @param blocker
+     * @param message The message of the exception thrown when interrupted
+     */
+    private void block(ManagedBlocker blocker, String message) {
+        try {
+            ForkJoinPool.managedBlock(blocker);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(message, e);
+        }
+    }
+
+    /**
+     * Takes the index of an available checker
+     *
+     * @return
+     */
+    private int take() {
+        Take take = new Take();
+        block(take, "Interrupted while waiting for a checker");
+        return take.index;
+    }
+}
@@ -47,6 +47,15 @@ public class IncognitoContext {
         lattice = null;
     }
 
+    /**
+     * Appends the non-anonymous transformations collected in the given context
+     * @param other
+     */
+    public synchronized void addAll(IncognitoContext other) {
+        nonAnonymousNodes.addAll(other.nonAnonymousNodes);
+        nonAnonymousTransformations.addAll(other.nonAnonymousTransformations);
+    }
+
     /**
      * @return the lattice
      */
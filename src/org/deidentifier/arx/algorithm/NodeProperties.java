@@ -0,0 +1,187 @@
+/*
+ * Source code of our CBMS 2014 paper "A benchmark of globally-optimal
+ *      methods for the de-identification of biomedical data"
+ *
+ * Copyright (C) 2014 Florian Kohlmayer, Fabian Prasser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.deidentifier.arx.algorithm;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.deidentifier.arx.framework.check.INodeChecker.Result;
+import org.deidentifier.arx.framework.lattice.Lattice;
+import org.deidentifier.arx.framework.lattice.Node;
+
+/**
+ * This class implements a lock-free store for the properties of the nodes in a lattice,
+ * which can be read and written by several threads concurrently. The properties of each
+ * node are stored in an atomic long, indexed by the id of the node, and are only ever
+ * set, never cleared. Properties are set with compare-and-swap. When tags are propagated
+ * upwards or downwards, a node is only expanded by the thread that actually changed its
+ * properties, so that each node is visited at most once per property.<br>
+ * <br>
+ * All changes are mirrored to the nodes in the lattice, because the checkers and the
+ * history rely on them. Mirroring is performed while holding the monitor of the node.
+ *
+ * @author Fabian Prasser
+ */
+public class NodeProperties {
+
+    /** All properties that are copied from a node after it has been checked */
+    private static final int[]    PROPERTIES = { Node.PROPERTY_ANONYMOUS,
+                                                 Node.PROPERTY_NOT_ANONYMOUS,
+                                                 Node.PROPERTY_K_ANONYMOUS,
+                                                 Node.PROPERTY_NOT_K_ANONYMOUS,
+                                                 Node.PROPERTY_CHECKED,
+                                                 Node.PROPERTY_SUCCESSORS_PRUNED,
+                                                 Node.PROPERTY_VISITED };
+
+    /** The lattice */
+    private final Lattice         lattice;
+
+    /** The properties of each node */
+    private final AtomicLongArray properties;
+
+    /**
+     * Creates a new store for the nodes in the given lattice, which are assumed
+     * to have no properties
+     *
+     * @param lattice
+     */
+    public NodeProperties(Lattice lattice) {
+        this.lattice = lattice;
+        this.properties = new AtomicLongArray(lattice.getSize());
+    }
+
+    /**
+     * Returns whether the node has all of the given properties
+     *
+     * @param node
+     * @param property
+     * @return
+     */
+    public boolean has(Node node, int property) {
+        return (properties.get(node.id) & property) == property;
+    }
+
+    /**
+     * Stores the result of checking the node
+     *
+     * @param node
+     * @param result
+     */
+    public void setChecked(Node node, Result result) {
+        int property = 0;
+        synchronized (node) {
+            lattice.setChecked(node, result);
+            for (int i = 0; i < PROPERTIES.length; i++) {
+                if (node.hasProperty(PROPERTIES[i])) {
+                    property |= PROPERTIES[i];
+                }
+            }
+        }
+        update(node, property);
+    }
+
+    /**
+     * Sets the given properties
+     *
+     * @param node
+     * @param property
+     * @return Whether any of the properties has not been set before
+     */
+    public boolean set(Node node, int property) {
+        long changed = update(node, property);
+        if (changed != 0L) {
+            synchronized (node) {
+                lattice.setProperty(node, (int) changed);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sets the given properties for all predecessors of the node
+     *
+     * @param node
+     * @param include Whether the properties should also be set for the node itself
+     * @param property
+     */
+    public void setDownwards(Node node, boolean include, int property) {
+        propagate(node, include, property, false);
+    }
+
+    /**
+     * Sets the given properties for all successors of the node
+     *
+     * @param node
+     * @param include Whether the properties should also be set for the node itself
+     * @param property
+     */
+    public void setUpwards(Node node, boolean include, int property) {
+        propagate(node, include, property, true);
+    }
+
+    /**
+     * Sets the given properties for all successors or predecessors of the node. Nodes that
+     * already have all of the properties are not expanded, as they are or will be expanded
+     * by the thread that has set their properties.
+     *
+     * @param node
+     * @param include
+     * @param property
+     * @param upwards
+     */
+    private void propagate(Node node, boolean include, int property, boolean upwards) {
+        if (include && !set(node, property)) {
+            return;
+        }
+        Deque<Node> stack = new ArrayDeque<Node>();
+        stack.push(node);
+        while (!stack.isEmpty()) {
+            Node current = stack.pop();
+            for (Node next : upwards ? current.getSuccessors() : current.getPredecessors()) {
+                if (set(next, property)) {
+                    stack.push(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the given properties with compare-and-swap
+     *
+     * @param node
+     * @param property
+     * @return The properties that have not been set before
+     */
+    private long update(Node node, int property) {
+        while (true) {
+            long current = properties.get(node.id);
+            long updated = current | property;
+            if (current == updated) {
+                return 0L;
+            }
+            if (properties.compareAndSet(node.id, current, updated)) {
+                return updated & ~current;
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Source code of our CBMS 2014 paper "A benchmark of globally-optimal
+ *      methods for the de-identification of biomedical data"
+ *
+ * Copyright (C) 2014 Florian Kohlmayer, Fabian Prasser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.deidentifier.arx.algorithm;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class creates the worker threads of the parallel algorithms and keeps track of the
+ * CPU time consumed and the bytes allocated by them. Each worker measures itself when it
+ * terminates, so that the measurements are complete after {@link #shutdown(ExecutorService)}
+ * has returned.
+ *
+ * @author Fabian Prasser
+ */
+public class WorkerThreads implements ThreadFactory, ForkJoinWorkerThreadFactory {
+
+    /** The thread bean */
+    private static final ThreadMXBean BEAN           = ManagementFactory.getThreadMXBean();
+
+    /** The threads created */
+    private final List<Thread>        threads        = new ArrayList<Thread>();
+    /** CPU time consumed by terminated threads in nanoseconds */
+    private final AtomicLong          cpuTime        = new AtomicLong();
+    /** Bytes allocated by terminated threads */
+    private final AtomicLong          allocatedBytes = new AtomicLong();
+
+    /**
+     * Returns the number of bytes allocated by all terminated threads, or -1 if this is not supported by the JVM
+     *
+     * @return
+     */
+    public long getAllocatedBytes() {
+        return getAllocationBean() != null ? allocatedBytes.get() : -1L;
+    }
+
+    /**
+     * Returns the CPU time consumed by all terminated threads in nanoseconds, or -1 if this is not supported by the JVM
+     *
+     * @return
+     */
+    public long getCpuTime() {
+        return isCpuTimeSupported() ? cpuTime.get() : -1L;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory#newThread(java.util.concurrent.ForkJoinPool)
+     */
+    @Override
+    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = new ForkJoinWorkerThread(pool) {
+            @Override
+            protected void onTermination(Throwable exception) {
+                measure();
+                super.onTermination(exception);
+            }
+        };
+        register(thread);
+        return thread;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+     */
+    @Override
+    public Thread newThread(final Runnable runnable) {
+        Thread thread = Executors.defaultThreadFactory().newThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    runnable.run();
+                } finally {
+                    measure();
+                }
+            }
+        });
+        register(thread);
+        return thread;
+    }
+
+    /**
+     * Shuts down the given pool, which must have been created with this factory, and
+     * waits until all of its threads have terminated
+     *
+     * @param pool
+     */
+    public void shutdown(ExecutorService pool) {
+        pool.shutdownNow();
+        List<Thread> threads;
+        synchronized (this.threads) {
+            threads = new ArrayList<Thread>(this.threads);
+            this.threads.clear();
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the bean, if the bytes allocated by a thread can be measured, null otherwise
+     *
+     * @return
+     */
+    private com.sun.management.ThreadMXBean getAllocationBean() {
+        if (BEAN instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) BEAN;
+            if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                return bean;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether the CPU time of a thread can be measured
+     *
+     * @return
+     */
+    private boolean isCpuTimeSupported() {
+        return BEAN.isCurrentThreadCpuTimeSupported() && BEAN.isThreadCpuTimeEnabled();
+    }
+
+    /**
+     * Adds the resources consumed by the current thread
+     */
+    private void measure() {
+        if (isCpuTimeSupported()) {
+            cpuTime.addAndGet(BEAN.getCurrentThreadCpuTime());
+        }
+        com.sun.management.ThreadMXBean bean = getAllocationBean();
+        if (bean != null) {
+            allocatedBytes.addAndGet(bean.getThreadAllocatedBytes(Thread.currentThread().getId()));
+        }
+    }
+
+    /**
+     * Registers a thread
+     *
+     * @param thread
+     */
+    private void register(Thread thread) {
+        synchronized (threads) {
+            threads.add(thread);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Source code of our CBMS 2014 paper "A benchmark of globally-optimal
+ *      methods for the de-identification of biomedical data"
+ *
+ * Copyright (C) 2014 Florian Kohlmayer, Fabian Prasser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.deidentifier.arx.metric;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.deidentifier.arx.ARXConfiguration;
+import org.deidentifier.arx.DataDefinition;
+import org.deidentifier.arx.framework.check.groupify.IHashGroupify;
+import org.deidentifier.arx.framework.data.Data;
+import org.deidentifier.arx.framework.data.GeneralizationHierarchy;
+import org.deidentifier.arx.framework.lattice.Node;
+
+/**
+ * A metric that delegates to another metric and measures the time spent evaluating it.
+ * It is located in this package to be able to access the protected methods of the delegate.
+ *
+ * @author Fabian Prasser
+ * @param <T>
+ */
+public class TimedMetric<T extends InformationLoss> extends Metric<T> {
+
+    /** SVUID */
+    private static final long serialVersionUID = 2817466113947250473L;
+
+    /** The delegate */
+    private final Metric<T>   delegate;
+    /** The time spent evaluating the delegate in nanoseconds */
+    private final AtomicLong  time;
+
+    /**
+     * Creates a new instance
+     *
+     * @param delegate
+     */
+    public TimedMetric(Metric<T> delegate) {
+        this(delegate, new AtomicLong());
+    }
+
+    /**
+     * Creates a new instance, which adds to the given time
+     *
+     * @param delegate
+     * @param time
+     */
+    private TimedMetric(Metric<T> delegate, AtomicLong time) {
+        super(delegate.isMonotonic(), delegate.isIndependent());
+        this.delegate = delegate;
+        this.time = time;
+    }
+
+    /**
+     * Wraps the given metric
+     *
+     * @param metric
+     * @return
+     */
+    public static <T extends InformationLoss> TimedMetric<T> create(Metric<T> metric) {
+        return new TimedMetric<T>(metric);
+    }
+
+    /**
+     * Returns a copy of this metric for use by another thread. The delegate is copied
+     * including its state, e.g. after it has been initialized, so that the copy does not
+     * share any caches with this metric. The time spent evaluating the copy is added to
+     * the time of this metric.
+     *
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public TimedMetric<T> copy() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(delegate);
+            out.close();
+            ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+            return new TimedMetric<T>((Metric<T>) in.readObject(), time);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot copy metric: " + delegate, e);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("Cannot copy metric: " + delegate, e);
+        }
+    }
+
+    @Override
+    public InformationLoss createMaxInformationLoss() {
+        return delegate.createMaxInformationLoss();
+    }
+
+    @Override
+    public InformationLoss createMinInformationLoss() {
+        return delegate.createMinInformationLoss();
+    }
+
+    /**
+     * Returns the time spent evaluating the metric in nanoseconds
+     *
+     * @return
+     */
+    public long getTime() {
+        return time.get();
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+
+    @Override
+    protected T evaluateInternal(Node node, IHashGroupify groupify) {
+        long start = System.nanoTime();
+        try {
+            return delegate.evaluateInternal(node, groupify);
+        } finally {
+            time.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    protected void initializeInternal(DataDefinition definition,
+                                      Data input,
+                                      GeneralizationHierarchy[] hierarchies,
+                                      ARXConfiguration config) {
+        delegate.initializeInternal(definition, input, hierarchies, config);
+    }
+}
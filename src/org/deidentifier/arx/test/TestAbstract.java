@@ -21,7 +21,9 @@
 package org.deidentifier.arx.test;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import junit.framework.TestCase;
 
@@ -61,13 +63,16 @@ public abstract class TestAbstract extends TestCase {
     public void test() throws IOException {
         
         // Initialize
-        BenchmarkDriver driver = new BenchmarkDriver(null);
+        BenchmarkDriver driver = new BenchmarkDriver();
 
-        // For each algorithm
-        for (BenchmarkAlgorithm algorithm : BenchmarkSetup.getAlgorithms()) {
+        // For each algorithm, including the parallel ones
+        List<BenchmarkAlgorithm> algorithms = new ArrayList<BenchmarkAlgorithm>();
+        algorithms.addAll(Arrays.asList(BenchmarkSetup.getAlgorithms()));
+        algorithms.addAll(Arrays.asList(BenchmarkSetup.getParallelAlgorithms()));
+        for (BenchmarkAlgorithm algorithm : algorithms) {
             
-            // Skip BFS, as it simply takes too long
-            if (algorithm == BenchmarkAlgorithm.BFS) {
+            // Skip BFS, as it simply takes too long, see TestTimeLimit and TestParallel
+            if (algorithm == BenchmarkAlgorithm.BFS || algorithm == BenchmarkAlgorithm.PARALLEL_BFS) {
                 continue;
             }
                 
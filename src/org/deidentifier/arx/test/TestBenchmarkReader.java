@@ -0,0 +1,136 @@
+/*
+ * Source code of our CBMS 2014 paper "A benchmark of globally-optimal
+ *      methods for the de-identification of biomedical data"
+ *
+ * Copyright (C) 2014 Florian Kohlmayer, Fabian Prasser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.deidentifier.arx.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.deidentifier.arx.BenchmarkReader;
+import org.deidentifier.arx.Data;
+import org.deidentifier.arx.DataHandle;
+import org.junit.Test;
+
+/**
+ * Tests the BenchmarkReader against the input handle of {@link Data} on a small file
+ * with CRLF line endings and empty lines, which is split into several chunks
+ *
+ * @author Fabian Prasser
+ */
+public class TestBenchmarkReader extends TestCase {
+
+    /** The number of rows */
+    private static final int      ROWS    = 200;
+    /** The values of each column */
+    private static final String[] VALUES  = { "a", "b", "c", "d", "e", "f", "g", "\u00e4" };
+    /** The header */
+    private static final String[] HEADER  = { "age", "sex", "zip" };
+
+    @Test
+    public void testChunks() throws IOException {
+
+        // Create data
+        List<String[]> rows = new ArrayList<String[]>();
+        rows.add(HEADER);
+        Random random = new Random(0L);
+        for (int i = 0; i < ROWS; i++) {
+            String[] row = new String[HEADER.length];
+            for (int column = 0; column < row.length; column++) {
+                row[column] = VALUES[random.nextInt(VALUES.length - column)] + column;
+            }
+            rows.add(row);
+        }
+        DataHandle handle = Data.create(rows).getHandle();
+
+        // Write with CRLF line endings, empty lines and without a trailing line break
+        File file = File.createTempFile("reader", ".csv");
+        file.deleteOnExit();
+        OutputStream out = new FileOutputStream(file);
+        try {
+            for (int i = 0; i < rows.size(); i++) {
+                StringBuilder builder = new StringBuilder();
+                for (int column = 0; column < HEADER.length; column++) {
+                    builder.append(column == 0 ? "" : ";").append(rows.get(i)[column]);
+                }
+                if (i > 0 && i % 7 == 0) {
+                    builder.append("\r\n");
+                }
+                if (i > 0 && i % 11 == 0) {
+                    builder.append("\n");
+                }
+                if (i < rows.size() - 1) {
+                    builder.append("\r\n");
+                }
+                out.write(builder.toString().getBytes("UTF-8"));
+            }
+        } finally {
+            out.close();
+        }
+
+        // Read with chunks of a single line, of several lines and of the whole file
+        for (long chunk : new long[] { 1L, 16L, 100L, 1L << 26 }) {
+            for (int threads : new int[] { 1, 4 }) {
+                BenchmarkReader reader = new BenchmarkReader(file, ';', threads, chunk);
+                check(handle, reader, "Chunk " + chunk + ", threads " + threads);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the reader has read the data of the handle, and whether each
+     * column is encoded in the order of first appearance
+     *
+     * @param handle
+     * @param reader
+     * @param message
+     */
+    private void check(DataHandle handle, BenchmarkReader reader, String message) {
+
+        // Header
+        assertTrue(message, Arrays.equals(HEADER, reader.getHeader()));
+
+        // Data
+        int[][] data = reader.getData();
+        String[][] dictionary = reader.getDictionary();
+        assertEquals(message, handle.getNumRows(), data.length);
+        for (int column = 0; column < HEADER.length; column++) {
+            Map<String, Integer> codes = new HashMap<String, Integer>();
+            for (int row = 0; row < data.length; row++) {
+                String value = handle.getValue(row, column);
+                if (!codes.containsKey(value)) {
+                    codes.put(value, codes.size());
+                }
+                assertEquals(message, value, dictionary[column][data[row][column]]);
+                assertEquals(message, codes.get(value).intValue(), data[row][column]);
+            }
+            assertEquals(message, codes.size(), dictionary[column].length);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Source code of our CBMS 2014 paper "A benchmark of globally-optimal
+ *      methods for the de-identification of biomedical data"
+ *
+ * Copyright (C) 2014 Florian Kohlmayer, Fabian Prasser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.deidentifier.arx.test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+import org.deidentifier.arx.algorithm.NodeProperties;
+import org.deidentifier.arx.framework.lattice.Lattice;
+import org.deidentifier.arx.framework.lattice.LatticeBuilder;
+import org.deidentifier.arx.framework.lattice.Node;
+import org.junit.Test;
+
+/**
+ * Tests the concurrent propagation of properties through a {@link NodeProperties} store
+ *
+ * @author Fabian Prasser
+ */
+public class TestNodeProperties extends TestCase {
+
+    /** The number of threads */
+    private static final int THREADS     = 8;
+    /** The number of rounds */
+    private static final int ROUNDS      = 50;
+    /** The property propagated upwards */
+    private static final int UPWARDS     = Node.PROPERTY_ANONYMOUS | Node.PROPERTY_SUCCESSORS_PRUNED;
+    /** The property propagated downwards */
+    private static final int DOWNWARDS   = Node.PROPERTY_NOT_ANONYMOUS;
+
+    @Test
+    public void testConcurrentPropagation() throws Exception {
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+
+                // Each thread propagates upwards from a node of the same level, and downwards
+                // from a node of another level, so that the sets of nodes overlap
+                Lattice lattice = new LatticeBuilder(new int[] { 3, 3, 2, 2 }, new int[] { 0, 0, 0, 0 }).build();
+                Node[][] levels = lattice.getLevels();
+                List<Node> up = new ArrayList<Node>();
+                List<Node> down = new ArrayList<Node>();
+                for (int i = 0; i < THREADS; i++) {
+                    Node[] lower = levels[levels.length / 3];
+                    Node[] upper = levels[2 * levels.length / 3];
+                    up.add(lower[(i + round) % lower.length]);
+                    down.add(upper[(i * 3 + round) % upper.length]);
+                }
+
+                // Propagate
+                NodeProperties properties = new NodeProperties(lattice);
+                propagate(pool, properties, up, down);
+
+                // Check
+                Set<Node> expectedUp = getClosure(up, true);
+                Set<Node> expectedDown = getClosure(down, false);
+                for (Node[] level : levels) {
+                    for (Node node : level) {
+                        assertEquals(expectedUp.contains(node), properties.has(node, UPWARDS));
+                        assertEquals(expectedUp.contains(node), node.hasProperty(UPWARDS));
+                        assertEquals(expectedDown.contains(node), properties.has(node, DOWNWARDS));
+                        assertEquals(expectedDown.contains(node), node.hasProperty(DOWNWARDS));
+                    }
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSet() {
+        Lattice lattice = new LatticeBuilder(new int[] { 2, 2 }, new int[] { 0, 0 }).build();
+        NodeProperties properties = new NodeProperties(lattice);
+        Node node = lattice.getBottom();
+        assertFalse(properties.has(node, Node.PROPERTY_ANONYMOUS));
+        assertTrue(properties.set(node, Node.PROPERTY_ANONYMOUS));
+        assertFalse(properties.set(node, Node.PROPERTY_ANONYMOUS));
+        assertTrue(properties.set(node, Node.PROPERTY_ANONYMOUS | Node.PROPERTY_CHECKED));
+        assertTrue(properties.has(node, Node.PROPERTY_ANONYMOUS | Node.PROPERTY_CHECKED));
+        assertTrue(node.hasProperty(Node.PROPERTY_ANONYMOUS | Node.PROPERTY_CHECKED));
+    }
+
+    /**
+     * Returns the given nodes and all of their successors or predecessors
+     *
+     * @param nodes
+     * @param upwards
+     * @return
+     */
+    private Set<Node> getClosure(List<Node> nodes, boolean upwards) {
+        Set<Node> result = new HashSet<Node>();
+        List<Node> stack = new ArrayList<Node>(nodes);
+        while (!stack.isEmpty()) {
+            Node node = stack.remove(stack.size() - 1);
+            if (result.add(node)) {
+                for (Node next : upwards ? node.getSuccessors() : node.getPredecessors()) {
+                    stack.add(next);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Propagates upwards from the first nodes and downwards from the second nodes, one thread
+     * per pair of nodes. All threads are started at the same time.
+     *
+     * @param pool
+     * @param properties
+     * @param up
+     * @param down
+     * @throws Exception
+     */
+    private void propagate(ExecutorService pool,
+                           final NodeProperties properties,
+                           final List<Node> up,
+                           final List<Node> down) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (int i = 0; i < up.size(); i++) {
+            final int index = i;
+            futures.add(pool.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws InterruptedException {
+                    start.await();
+                    properties.setUpwards(up.get(index), true, UPWARDS);
+                    properties.setDownwards(down.get(index), true, DOWNWARDS);
+                    return null;
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+    }
+}
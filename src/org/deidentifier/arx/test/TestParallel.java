@@ -0,0 +1,108 @@
+/*
+ * Source code of our CBMS 2014 paper "A benchmark of globally-optimal
+ *      methods for the de-identification of biomedical data"
+ *
+ * Copyright (C) 2014 Florian Kohlmayer, Fabian Prasser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.deidentifier.arx.test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.deidentifier.arx.BenchmarkCell;
+import org.deidentifier.arx.BenchmarkDriver;
+import org.deidentifier.arx.BenchmarkSetup.BenchmarkAlgorithm;
+import org.deidentifier.arx.BenchmarkSetup.BenchmarkCriterion;
+import org.deidentifier.arx.BenchmarkSetup.BenchmarkDataset;
+import org.deidentifier.arx.algorithm.AbstractBenchmarkAlgorithm;
+import org.deidentifier.arx.framework.lattice.Node;
+import org.junit.Test;
+
+/**
+ * Tests the parallel algorithms against their sequential counterparts on a synthetic
+ * dataset, which is generated on first use
+ *
+ * @author Fabian Prasser
+ */
+public class TestParallel extends TestCase {
+
+    /** The criteria */
+    private static final BenchmarkCriterion[] CRITERIA = new BenchmarkCriterion[] { BenchmarkCriterion.K_ANONYMITY };
+
+    /** The driver */
+    private final BenchmarkDriver             driver   = new BenchmarkDriver();
+
+    @Test
+    public void testBFS() throws IOException {
+        AbstractBenchmarkAlgorithm sequential = execute(BenchmarkAlgorithm.BFS);
+        AbstractBenchmarkAlgorithm parallel = execute(BenchmarkAlgorithm.PARALLEL_BFS);
+        check(BenchmarkAlgorithm.PARALLEL_BFS, sequential, parallel);
+        assertEquals("Number of checks doesn't match", sequential.getNumChecks(), parallel.getNumChecks());
+    }
+
+    @Test
+    public void testFlash() throws IOException {
+        check(BenchmarkAlgorithm.PARALLEL_FLASH, execute(BenchmarkAlgorithm.FLASH), execute(BenchmarkAlgorithm.PARALLEL_FLASH));
+    }
+
+    @Test
+    public void testIncognito() throws IOException {
+        check(BenchmarkAlgorithm.PARALLEL_INCOGNITO, execute(BenchmarkAlgorithm.INCOGNITO), execute(BenchmarkAlgorithm.PARALLEL_INCOGNITO));
+    }
+
+    @Test
+    public void testOLA() throws IOException {
+        check(BenchmarkAlgorithm.PARALLEL_OLA, execute(BenchmarkAlgorithm.OLA), execute(BenchmarkAlgorithm.PARALLEL_OLA));
+    }
+
+    /**
+     * Checks whether the parallel algorithm has found the same optimum as its
+     * sequential counterpart
+     *
+     * @param algorithm The parallel algorithm
+     * @param expected
+     * @param actual
+     */
+    private void check(BenchmarkAlgorithm algorithm, AbstractBenchmarkAlgorithm expected, AbstractBenchmarkAlgorithm actual) {
+        Node expectedOptimum = expected.getGlobalOptimum();
+        Node actualOptimum = actual.getGlobalOptimum();
+        assertNotNull("No optimum found", expectedOptimum);
+        assertNotNull(algorithm + ": No optimum found", actualOptimum);
+        assertEquals(algorithm + ": Information loss doesn't match",
+                     String.valueOf(expectedOptimum.getInformationLoss().getValue()),
+                     String.valueOf(actualOptimum.getInformationLoss().getValue()));
+        assertTrue(algorithm + ": Transformation doesn't match",
+                   Arrays.equals(expectedOptimum.getTransformation(), actualOptimum.getTransformation()));
+    }
+
+    /**
+     * Executes the given algorithm
+     *
+     * @param algorithm
+     * @return
+     * @throws IOException
+     */
+    private AbstractBenchmarkAlgorithm execute(BenchmarkAlgorithm algorithm) throws IOException {
+        AbstractBenchmarkAlgorithm implementation = driver.getImplementation(new BenchmarkCell(algorithm,
+                                                                                               BenchmarkDataset.SYNTHETIC_SMALL,
+                                                                                               CRITERIA));
+        implementation.traverse();
+        return implementation;
+    }
+}
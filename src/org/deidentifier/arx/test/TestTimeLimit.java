@@ -0,0 +1,110 @@
+/*
+ * Source code of our CBMS 2014 paper "A benchmark of globally-optimal
+ *      methods for the de-identification of biomedical data"
+ *
+ * Copyright (C) 2014 Florian Kohlmayer, Fabian Prasser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.deidentifier.arx.test;
+
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.deidentifier.arx.BenchmarkCell;
+import org.deidentifier.arx.BenchmarkDriver;
+import org.deidentifier.arx.BenchmarkMain;
+import org.deidentifier.arx.BenchmarkResult;
+import org.deidentifier.arx.BenchmarkSetup.BenchmarkAlgorithm;
+import org.deidentifier.arx.BenchmarkSetup.BenchmarkCriterion;
+import org.deidentifier.arx.BenchmarkSetup.BenchmarkDataset;
+import org.junit.Test;
+
+/**
+ * Tests the time limit with BFS on a synthetic dataset, which is generated on first use
+ *
+ * @author Fabian Prasser
+ */
+public class TestTimeLimit extends TestCase {
+
+    /** The cell */
+    private final BenchmarkCell cell = new BenchmarkCell(BenchmarkAlgorithm.BFS,
+                                                         BenchmarkDataset.SYNTHETIC_SMALL,
+                                                         new BenchmarkCriterion[] { BenchmarkCriterion.K_ANONYMITY });
+
+    @Test
+    public void testCompleted() throws IOException {
+
+        BenchmarkResult result = new BenchmarkResult();
+        assertTrue(new BenchmarkDriver().anonymize(cell, result, Long.MAX_VALUE));
+
+        // Check
+        assertEquals(0d, getValue(result, BenchmarkMain.TIMEOUTS));
+        assertTrue(getValue(result, BenchmarkMain.NUMBER_OF_CHECKS) > 0d);
+        assertTrue(getValue(result, BenchmarkMain.NUMBER_OF_CHECKS) <= getValue(result, BenchmarkMain.LATTICE_SIZE));
+        assertFalse(Double.isNaN(getValue(result, BenchmarkMain.INFORMATION_LOSS)));
+    }
+
+    @Test
+    public void testExceeded() throws IOException {
+
+        // Complete run
+        BenchmarkDriver driver = new BenchmarkDriver();
+        BenchmarkResult complete = new BenchmarkResult();
+        assertTrue(driver.anonymize(cell, complete, Long.MAX_VALUE));
+
+        // The deadline has passed before the first check
+        BenchmarkResult result = new BenchmarkResult();
+        assertFalse(driver.anonymize(cell, result, System.currentTimeMillis() - 1L));
+
+        // Partial counters and a value for each measure of a run are recorded
+        assertEquals(1d, getValue(result, BenchmarkMain.TIMEOUTS));
+        assertEquals(0d, getValue(result, BenchmarkMain.NUMBER_OF_CHECKS));
+        assertEquals(0d, getValue(result, BenchmarkMain.NUMBER_OF_ROLLUPS));
+        assertTrue(Double.isNaN(getValue(result, BenchmarkMain.INFORMATION_LOSS)));
+        assertEquals(1, result.getValues(BenchmarkMain.EXECUTION_TIME).length);
+
+        // The deadline passes during the traversal. Later runs may be faster than the complete
+        // run, so the time budget is halved until the run is aborted. The last deadline has
+        // passed before the run is started, which guarantees that it is aborted.
+        long budget = (long) (getValue(complete, BenchmarkMain.EXECUTION_TIME) / 1000000d) / 2L;
+        boolean completed = true;
+        while (completed) {
+            result = new BenchmarkResult();
+            completed = driver.anonymize(cell, result, System.currentTimeMillis() + budget);
+            budget = budget > 0L ? budget / 2L : -1L;
+        }
+
+        // Partial counters of the aborted run are recorded
+        assertEquals(1d, getValue(result, BenchmarkMain.TIMEOUTS));
+        assertTrue(getValue(result, BenchmarkMain.NUMBER_OF_CHECKS) < getValue(complete, BenchmarkMain.NUMBER_OF_CHECKS));
+        assertTrue(getValue(result, BenchmarkMain.NUMBER_OF_ROLLUPS) <= getValue(complete, BenchmarkMain.NUMBER_OF_ROLLUPS));
+        assertEquals(1, result.getValues(BenchmarkMain.INFORMATION_LOSS).length);
+    }
+
+    /**
+     * Returns the only value of the given measure
+     *
+     * @param result
+     * @param measure
+     * @return
+     */
+    private double getValue(BenchmarkResult result, int measure) {
+        double[] values = result.getValues(measure);
+        assertEquals(1, values.length);
+        return values[0];
+    }
+}